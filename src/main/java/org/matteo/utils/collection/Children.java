@@ -0,0 +1,533 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sorted storage of the children of a {@link Node}.
+ * Leaves share an immutable empty instance, small fan-outs use a sorted array searched by binary search
+ * and only large fan-outs allocate an order-statistic tree. Mutators return the storage to be used from then on.
+ */
+abstract class Children<K extends Comparable<K>, V> implements Iterable<Node<K, V>> {
+
+    static final int ARRAY_THRESHOLD = 32;
+
+    /**
+     * Holds no node, so the type arguments are arbitrary, see {@link #empty(Comparator)}
+     */
+    private static final Children<?, ?> DEFAULT_EMPTY = new Empty<String, Object>(NullSafeComparator.getInstance());
+
+    final Comparator<K> comparator;
+
+    Children(Comparator<K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Leaves with the default comparator share one instance, which holds no node and so can stand for any type arguments
+     */
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<K>, V> Children<K, V> empty(Comparator<K> comparator) {
+        return comparator == DEFAULT_EMPTY.comparator ? (Children<K, V>) DEFAULT_EMPTY : new Empty<>(comparator);
+    }
+
+    /**
+     * Generic arrays cannot be created, the array is created with wildcards and only ever holds nodes with these type arguments
+     */
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<K>, V> Node<K, V>[] newArray(int length) {
+        return (Node<K, V>[]) new Node<?, ?>[length];
+    }
+
+    /**
+     * Creates a storage from nodes already sorted by key without duplicates
+     */
+    static <K extends Comparable<K>, V> Children<K, V> ofSorted(Comparator<K> comparator, List<Node<K, V>> nodes) {
+        if (nodes.isEmpty()) {
+            return empty(comparator);
+        } else if (nodes.size() <= ARRAY_THRESHOLD) {
+            Node<K, V>[] array = nodes.toArray(newArray(nodes.size()));
+            return new Array<>(comparator, array, array.length);
+        } else {
+            return new Ranked<>(comparator, Ranked.build(nodes, 0, nodes.size()));
+        }
+    }
+
+    abstract int size();
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    abstract Node<K, V> get(K key);
+
+    /**
+     * @return the index of the key if present, otherwise (-(insertion point) - 1)
+     */
+    abstract int indexOf(K key);
+
+    abstract Node<K, V> get(int index);
+
+    abstract Children<K, V> put(Node<K, V> node);
+
+    abstract Children<K, V> remove(K key);
+
+    Children<K, V> clear() {
+        return empty(comparator);
+    }
+
+    Node<K, V> first() {
+        return isEmpty() ? null : get(0);
+    }
+
+    /**
+     * @return a new storage with the children between from (inclusive) and to (exclusive) positions
+     */
+    Children<K, V> slice(int from, int to) {
+        List<Node<K, V>> nodes = new ArrayList<>(Math.max(to - from, 0));
+        Iterator<Node<K, V>> iterator = iterator(from, to);
+        while (iterator.hasNext()) {
+            nodes.add(iterator.next());
+        }
+        return ofSorted(comparator, nodes);
+    }
+
+    /**
+     * @return a new storage with the same children, so that a clone does not share the mutable storage of the original
+     */
+    Children<K, V> copy() {
+        return slice(0, size());
+    }
+
+    @Override
+    public Iterator<Node<K, V>> iterator() {
+        return iterator(0, size());
+    }
+
+    abstract Iterator<Node<K, V>> iterator(int from, int to);
+
+    private static final class Empty<K extends Comparable<K>, V> extends Children<K, V> {
+
+        private Empty(Comparator<K> comparator) {
+            super(comparator);
+        }
+
+        @Override
+        int size() {
+            return 0;
+        }
+
+        @Override
+        Node<K, V> get(K key) {
+            return null;
+        }
+
+        @Override
+        int indexOf(K key) {
+            return -1;
+        }
+
+        @Override
+        Node<K, V> get(int index) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+
+        @Override
+        Children<K, V> put(Node<K, V> node) {
+            Node<K, V>[] nodes = newArray(2);
+            nodes[0] = node;
+            return new Array<>(comparator, nodes, 1);
+        }
+
+        @Override
+        Children<K, V> remove(K key) {
+            return this;
+        }
+
+        @Override
+        Children<K, V> clear() {
+            return this;
+        }
+
+        @Override
+        Iterator<Node<K, V>> iterator(int from, int to) {
+            return new ArrayIterator<>(null, 0, 0);
+        }
+    }
+
+    private static final class Array<K extends Comparable<K>, V> extends Children<K, V> {
+
+        private Node<K, V>[] nodes;
+        private int size;
+
+        private Array(Comparator<K> comparator, Node<K, V>[] nodes, int size) {
+            super(comparator);
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        Node<K, V> get(K key) {
+            int index = indexOf(key);
+            return index >= 0 ? nodes[index] : null;
+        }
+
+        @Override
+        int indexOf(K key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = comparator.compare(nodes[mid].getKey(), key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        @Override
+        Node<K, V> get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return nodes[index];
+        }
+
+        @Override
+        Children<K, V> put(Node<K, V> node) {
+            int index = indexOf(node.getKey());
+            if (index >= 0) {
+                nodes[index] = node;
+                return this;
+            }
+            if (size == ARRAY_THRESHOLD) {
+                return new Ranked<>(comparator, Ranked.build(Arrays.asList(nodes), 0, size)).put(node);
+            }
+            int insertion = -(index + 1);
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.min(size << 1, ARRAY_THRESHOLD));
+            }
+            System.arraycopy(nodes, insertion, nodes, insertion + 1, size - insertion);
+            nodes[insertion] = node;
+            size++;
+            return this;
+        }
+
+        @Override
+        Children<K, V> remove(K key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (size == 1) {
+                    return clear();
+                }
+                System.arraycopy(nodes, index + 1, nodes, index, size - index - 1);
+                nodes[--size] = null;
+            }
+            return this;
+        }
+
+        @Override
+        Iterator<Node<K, V>> iterator(int from, int to) {
+            return new ArrayIterator<>(this, from, to);
+        }
+    }
+
+    /**
+     * Iterates the live array, so that removals during the iteration do not fail like in a TreeMap
+     */
+    private static final class ArrayIterator<K extends Comparable<K>, V> implements Iterator<Node<K, V>> {
+
+        private final Array<K, V> array;
+        private final int to;
+        private int index;
+
+        private ArrayIterator(Array<K, V> array, int from, int to) {
+            this.array = array;
+            this.index = Math.max(from, 0);
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return array != null && index < Math.min(to, array.size);
+        }
+
+        @Override
+        public Node<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return array.nodes[index++];
+        }
+    }
+
+    /**
+     * AVL tree augmented with subtree counts, so that position lookups and positional access are O(log n)
+     */
+    private static final class Ranked<K extends Comparable<K>, V> extends Children<K, V> {
+
+        private Entry<K, V> root;
+
+        private Ranked(Comparator<K> comparator, Entry<K, V> root) {
+            super(comparator);
+            this.root = root;
+        }
+
+        private static <K extends Comparable<K>, V> Entry<K, V> build(List<Node<K, V>> nodes, int from, int to) {
+            if (from >= to) {
+                return null;
+            }
+            int mid = (from + to) >>> 1;
+            Entry<K, V> entry = new Entry<>(nodes.get(mid));
+            entry.left = build(nodes, from, mid);
+            entry.right = build(nodes, mid + 1, to);
+            update(entry);
+            return entry;
+        }
+
+        @Override
+        int size() {
+            return count(root);
+        }
+
+        @Override
+        Node<K, V> get(K key) {
+            Entry<K, V> entry = root;
+            while (entry != null) {
+                int cmp = comparator.compare(key, entry.node.getKey());
+                if (cmp < 0) {
+                    entry = entry.left;
+                } else if (cmp > 0) {
+                    entry = entry.right;
+                } else {
+                    return entry.node;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        int indexOf(K key) {
+            int index = 0;
+            Entry<K, V> entry = root;
+            while (entry != null) {
+                int cmp = comparator.compare(key, entry.node.getKey());
+                if (cmp < 0) {
+                    entry = entry.left;
+                } else if (cmp > 0) {
+                    index += count(entry.left) + 1;
+                    entry = entry.right;
+                } else {
+                    return index + count(entry.left);
+                }
+            }
+            return -(index + 1);
+        }
+
+        @Override
+        Node<K, V> get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            Entry<K, V> entry = root;
+            while (true) {
+                int left = count(entry.left);
+                if (index < left) {
+                    entry = entry.left;
+                } else if (index > left) {
+                    index -= left + 1;
+                    entry = entry.right;
+                } else {
+                    return entry.node;
+                }
+            }
+        }
+
+        @Override
+        Children<K, V> put(Node<K, V> node) {
+            root = insert(root, node);
+            return this;
+        }
+
+        @Override
+        Children<K, V> remove(K key) {
+            root = delete(root, key);
+            if (size() <= ARRAY_THRESHOLD / 4) {
+                List<Node<K, V>> nodes = new ArrayList<>(size());
+                for (Node<K, V> node : this) {
+                    nodes.add(node);
+                }
+                return ofSorted(comparator, nodes);
+            }
+            return this;
+        }
+
+        private Entry<K, V> insert(Entry<K, V> entry, Node<K, V> node) {
+            if (entry == null) {
+                return new Entry<>(node);
+            }
+            int cmp = comparator.compare(node.getKey(), entry.node.getKey());
+            if (cmp < 0) {
+                entry.left = insert(entry.left, node);
+            } else if (cmp > 0) {
+                entry.right = insert(entry.right, node);
+            } else {
+                entry.node = node;
+                return entry;
+            }
+            return balance(entry);
+        }
+
+        private Entry<K, V> delete(Entry<K, V> entry, K key) {
+            if (entry == null) {
+                return null;
+            }
+            int cmp = comparator.compare(key, entry.node.getKey());
+            if (cmp < 0) {
+                entry.left = delete(entry.left, key);
+            } else if (cmp > 0) {
+                entry.right = delete(entry.right, key);
+            } else {
+                if (entry.left == null) {
+                    return entry.right;
+                } else if (entry.right == null) {
+                    return entry.left;
+                }
+                Entry<K, V> min = entry.right;
+                while (min.left != null) {
+                    min = min.left;
+                }
+                entry.node = min.node;
+                entry.right = deleteMin(entry.right);
+            }
+            return balance(entry);
+        }
+
+        private static <K extends Comparable<K>, V> Entry<K, V> deleteMin(Entry<K, V> entry) {
+            if (entry.left == null) {
+                return entry.right;
+            }
+            entry.left = deleteMin(entry.left);
+            return balance(entry);
+        }
+
+        private static <K extends Comparable<K>, V> Entry<K, V> balance(Entry<K, V> entry) {
+            update(entry);
+            int factor = height(entry.left) - height(entry.right);
+            if (factor > 1) {
+                if (height(entry.left.left) < height(entry.left.right)) {
+                    entry.left = rotateLeft(entry.left);
+                }
+                return rotateRight(entry);
+            } else if (factor < -1) {
+                if (height(entry.right.right) < height(entry.right.left)) {
+                    entry.right = rotateRight(entry.right);
+                }
+                return rotateLeft(entry);
+            }
+            return entry;
+        }
+
+        private static <K extends Comparable<K>, V> Entry<K, V> rotateRight(Entry<K, V> entry) {
+            Entry<K, V> left = entry.left;
+            entry.left = left.right;
+            left.right = entry;
+            update(entry);
+            update(left);
+            return left;
+        }
+
+        private static <K extends Comparable<K>, V> Entry<K, V> rotateLeft(Entry<K, V> entry) {
+            Entry<K, V> right = entry.right;
+            entry.right = right.left;
+            right.left = entry;
+            update(entry);
+            update(right);
+            return right;
+        }
+
+        private static void update(Entry<?, ?> entry) {
+            entry.height = Math.max(height(entry.left), height(entry.right)) + 1;
+            entry.count = count(entry.left) + count(entry.right) + 1;
+        }
+
+        private static int height(Entry<?, ?> entry) {
+            return entry != null ? entry.height : 0;
+        }
+
+        private static int count(Entry<?, ?> entry) {
+            return entry != null ? entry.count : 0;
+        }
+
+        @Override
+        Iterator<Node<K, V>> iterator(int from, int to) {
+            final Deque<Entry<K, V>> stack = new ArrayDeque<>();
+            int index = Math.max(from, 0);
+            Entry<K, V> entry = root;
+            while (entry != null) {
+                int left = count(entry.left);
+                if (index < left) {
+                    stack.push(entry);
+                    entry = entry.left;
+                } else if (index > left) {
+                    index -= left + 1;
+                    entry = entry.right;
+                } else {
+                    stack.push(entry);
+                    break;
+                }
+            }
+            final int count = Math.max(to - Math.max(from, 0), 0);
+            return new Iterator<Node<K, V>>() {
+                private int remaining = count;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0 && !stack.isEmpty();
+                }
+
+                @Override
+                public Node<K, V> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    remaining--;
+                    Entry<K, V> next = stack.pop();
+                    for (Entry<K, V> e = next.right; e != null; e = e.left) {
+                        stack.push(e);
+                    }
+                    return next.node;
+                }
+            };
+        }
+
+        private static final class Entry<K extends Comparable<K>, V> {
+
+            private Node<K, V> node;
+            private Entry<K, V> left;
+            private Entry<K, V> right;
+            private int height = 1;
+            private int count = 1;
+
+            private Entry(Node<K, V> node) {
+                this.node = node;
+            }
+        }
+    }
+}
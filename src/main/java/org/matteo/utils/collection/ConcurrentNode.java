@@ -0,0 +1,233 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * A tree node that many threads can build at the same time, e.g. the workers of a dequeuer
+ * filling one shared hierarchy instead of merging partial trees at the end.
+ * Children are kept in a {@link ConcurrentSkipListMap} created on the first child; adding a child is atomic
+ * and, as for {@link Node#add(Node)}, returns the node already in the tree when there is one.
+ * Reads are weakly consistent and, unlike {@link Node}, {@link #size()} counts the descendants on each call;
+ * use {@link #toNode()} to get a plain tree once the building is done.
+ */
+public class ConcurrentNode<K extends Comparable<K>, V> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentNode, ConcurrentNavigableMap> CHILDREN =
+            AtomicReferenceFieldUpdater.newUpdater(ConcurrentNode.class, ConcurrentNavigableMap.class, "children");
+
+    private final K key;
+    private final Comparator<K> comparator;
+
+    private volatile V value;
+
+    private volatile ConcurrentNode<K, V> parent;
+    private volatile ConcurrentNavigableMap<K, ConcurrentNode<K, V>> children;
+
+    public ConcurrentNode() {
+        this(NullSafeComparator.getInstance());
+    }
+
+    public ConcurrentNode(Comparator<K> comparator) {
+        this(null, null, comparator);
+    }
+
+    public ConcurrentNode(K key) {
+        this(key, null, NullSafeComparator.getInstance());
+    }
+
+    public ConcurrentNode(K key, V value) {
+        this(key, value, NullSafeComparator.getInstance());
+    }
+
+    public ConcurrentNode(K key, V value, Comparator<K> comparator) {
+        this.key = key;
+        this.value = value;
+        this.comparator = comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrentNavigableMap<K, ConcurrentNode<K, V>> children() {
+        ConcurrentNavigableMap<K, ConcurrentNode<K, V>> map = children;
+        if (map == null) {
+            CHILDREN.compareAndSet(this, null, new ConcurrentSkipListMap<>(comparator));
+            map = children;
+        }
+        return map;
+    }
+
+    /**
+     * Adds the child if there is none with the same key, then adds its children to the one in the tree
+     *
+     * @return the child in the tree
+     */
+    public ConcurrentNode<K, V> add(ConcurrentNode<K, V> child) {
+        ConcurrentNode<K, V> node = addIfAbsent(child);
+        if (node != child) {
+            for (ConcurrentNode<K, V> c : child.getChildren()) {
+                node.add(c);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return the child with the given key, added without value if missing
+     */
+    public ConcurrentNode<K, V> addIfAbsent(K key) {
+        return addIfAbsent(key, null);
+    }
+
+    /**
+     * @return the child with the given key, added with the value if missing
+     */
+    public ConcurrentNode<K, V> addIfAbsent(K key, V value) {
+        ConcurrentNode<K, V> child = getChild(key);
+        return child != null ? child : addIfAbsent(new ConcurrentNode<>(key, value, comparator));
+    }
+
+    /**
+     * Sets the parent before publishing the child, so that a thread finding it in the map also sees its parent
+     */
+    private ConcurrentNode<K, V> addIfAbsent(ConcurrentNode<K, V> child) {
+        child.parent = this;
+        ConcurrentNode<K, V> existing = children().putIfAbsent(child.key, child);
+        if (existing != null) {
+            child.parent = null;
+            return existing;
+        }
+        return child;
+    }
+
+    /**
+     * Copies the descendants of the given tree into this one, keeping the nodes already present
+     */
+    public ConcurrentNode<K, V> merge(Node<K, V> root) {
+        Deque<ConcurrentNode<K, V>> targets = new ArrayDeque<>();
+        Deque<Node<K, V>> sources = new ArrayDeque<>();
+        targets.push(this);
+        sources.push(root);
+        while (!sources.isEmpty()) {
+            ConcurrentNode<K, V> target = targets.pop();
+            for (Node<K, V> source : sources.pop().getChildren()) {
+                targets.push(target.addIfAbsent(source.getKey(), source.getValue()));
+                sources.push(source);
+            }
+        }
+        return this;
+    }
+
+    public ConcurrentNode<K, V> remove(K key) {
+        ConcurrentNavigableMap<K, ConcurrentNode<K, V>> map = children;
+        if (map != null) {
+            ConcurrentNode<K, V> child = map.remove(key);
+            if (child != null) {
+                child.parent = null;
+            }
+        }
+        return this;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public void setValue(V value) {
+        this.value = value;
+    }
+
+    public ConcurrentNode<K, V> getParent() {
+        return parent;
+    }
+
+    public ConcurrentNode<K, V> getChild(K key) {
+        ConcurrentNavigableMap<K, ConcurrentNode<K, V>> map = children;
+        return map != null ? map.get(key) : null;
+    }
+
+    public Collection<ConcurrentNode<K, V>> getChildren() {
+        ConcurrentNavigableMap<K, ConcurrentNode<K, V>> map = children;
+        return map != null ? Collections.unmodifiableCollection(map.values()) : Collections.emptyList();
+    }
+
+    public int getChildCount() {
+        ConcurrentNavigableMap<K, ConcurrentNode<K, V>> map = children;
+        return map != null ? map.size() : 0;
+    }
+
+    public boolean isLeaf() {
+        return getChildCount() == 0;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    /**
+     * @return the number of descendants, counted on each call
+     */
+    public int size() {
+        int[] count = {-1};
+        traverseByDepthTopDown(node -> count[0]++);
+        return count[0];
+    }
+
+    public void traverseByDepthTopDown(Consumer<ConcurrentNode<K, V>> consumer) {
+        Deque<Iterator<ConcurrentNode<K, V>>> stack = new ArrayDeque<>();
+        consumer.accept(this);
+        stack.push(getChildren().iterator());
+        while (!stack.isEmpty()) {
+            Iterator<ConcurrentNode<K, V>> iterator = stack.peek();
+            if (iterator.hasNext()) {
+                ConcurrentNode<K, V> node = iterator.next();
+                consumer.accept(node);
+                stack.push(node.getChildren().iterator());
+            } else {
+                stack.pop();
+            }
+        }
+    }
+
+    /**
+     * @return a plain copy of this tree, consistent with the concurrent updates only once they are over
+     */
+    public Node<K, V> toNode() {
+        Node<K, V> root = new Node<>(key, value, comparator);
+        Deque<Node<K, V>> targets = new ArrayDeque<>();
+        Deque<ConcurrentNode<K, V>> sources = new ArrayDeque<>();
+        targets.push(root);
+        sources.push(this);
+        while (!sources.isEmpty()) {
+            Node<K, V> target = targets.pop();
+            List<Node<K, V>> copies = new ArrayList<>();
+            for (ConcurrentNode<K, V> source : sources.pop().getChildren()) {
+                Node<K, V> copy = new Node<>(source.key, source.value, comparator);
+                copies.add(copy);
+                targets.push(copy);
+                sources.push(source);
+            }
+            target.addAll(copies);
+        }
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return key + (isLeaf() ? "" : " -> " + getChildren());
+    }
+}
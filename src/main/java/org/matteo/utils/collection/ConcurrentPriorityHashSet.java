@@ -0,0 +1,119 @@
+package org.matteo.utils.collection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link PriorityHashSet} that can be shared by several threads without external synchronization.
+ * Of equal elements it keeps the one first in the order of the comparator, replacing it atomically
+ * through {@link ConcurrentMap#merge}, so contention is limited to the bin of the element.
+ * Iteration is weakly consistent and null elements are not supported.
+ */
+public class ConcurrentPriorityHashSet<T extends Comparable<T>> implements Set<T> {
+
+    /**
+     * Size of a collection above which addAll spreads the work over the common fork-join pool
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private final ConcurrentMap<T, T> map;
+
+    private final Comparator<T> comparator;
+
+    public ConcurrentPriorityHashSet() {
+        this(Comparator.naturalOrder());
+    }
+
+    public ConcurrentPriorityHashSet(Comparator<T> comparator) {
+        this(16, comparator);
+    }
+
+    public ConcurrentPriorityHashSet(int initialCapacity, Comparator<T> comparator) {
+        this.map = new ConcurrentHashMap<>(initialCapacity);
+        this.comparator = comparator;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return map.values().iterator();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return map.values().toArray();
+    }
+
+    @Override
+    public <A> A[] toArray(A[] a) {
+        return map.values().toArray(a);
+    }
+
+    /**
+     * Duplicates with no better priority are rejected with a lock-free read, the others are merged atomically
+     */
+    @Override
+    public boolean add(T t) {
+        T existing = map.get(t);
+        if (existing != null && comparator.compare(t, existing) >= 0) {
+            return false;
+        }
+        return map.merge(t, t, (current, candidate) -> comparator.compare(candidate, current) < 0 ? candidate : current) == t;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        return map.keySet().containsAll(collection);
+    }
+
+    /**
+     * Large collections are added in parallel
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        if (collection.size() >= PARALLEL_THRESHOLD) {
+            return collection.parallelStream().mapToInt(t -> add(t) ? 1 : 0).sum() > 0;
+        }
+        boolean changed = false;
+        for (T t : collection) {
+            changed |= add(t);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        return map.keySet().retainAll(collection);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        return map.keySet().removeAll(collection);
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+}
@@ -0,0 +1,307 @@
+package org.matteo.utils.collection;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of elements to themselves for {@link PriorityHashSet}, storing each element once in a flat
+ * open-addressing table with linear probing: no entry object per element and probes over adjacent slots.
+ * Removed elements leave a marker that is dropped on the next rehash. Null elements are not supported.
+ */
+final class FlatHashTable<T> extends AbstractMap<T, T> {
+
+    private static final Object REMOVED = new Object();
+
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Maximum ratio of used slots, elements and removal markers
+     */
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private Object[] table;
+    private int size;
+    private int used;
+    private int modCount;
+
+    FlatHashTable() {
+        this(MIN_CAPACITY);
+    }
+
+    FlatHashTable(int expectedSize) {
+        table = new Object[capacity(expectedSize)];
+    }
+
+    private static int capacity(int size) {
+        long capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR <= size) {
+            capacity <<= 1;
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Too many elements: " + size);
+        }
+        return (int) capacity;
+    }
+
+    private static int slot(Object o, int mask) {
+        int h = o.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @return the slot of the element, or of the first free slot on its probe sequence as -(slot + 1)
+     */
+    private int find(Object o) {
+        Object[] table = this.table;
+        int mask = table.length - 1;
+        int free = -1;
+        for (int i = slot(o, mask); ; i = (i + 1) & mask) {
+            Object current = table[i];
+            if (current == null) {
+                return -((free >= 0 ? free : i) + 1);
+            }
+            if (current == REMOVED) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (current == o || current.equals(o)) {
+                return i;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key);
+        return index >= 0 ? (T) table[index] : null;
+    }
+
+    /**
+     * @param value the same element as the key, since elements are stored once
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public T put(T key, T value) {
+        if (key != value) {
+            throw new IllegalArgumentException("Key and value must be the same element");
+        }
+        int index = find(key);
+        if (index >= 0) {
+            T previous = (T) table[index];
+            table[index] = key;
+            return previous;
+        }
+        index = -(index + 1);
+        if (table[index] == null) {
+            used++;
+        }
+        table[index] = key;
+        size++;
+        modCount++;
+        if (used > table.length * LOAD_FACTOR) {
+            rehash(capacity(size));
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        T removed = (T) table[index];
+        table[index] = REMOVED;
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        table = new Object[MIN_CAPACITY];
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    /**
+     * Grows the table to hold the given number of elements without rehashing
+     */
+    void ensureCapacity(int size) {
+        int capacity = capacity(size);
+        if (capacity > table.length) {
+            rehash(capacity);
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends T, ? extends T> m) {
+        ensureCapacity(size + m.size());
+        super.putAll(m);
+    }
+
+    private void rehash(int capacity) {
+        Object[] old = table;
+        table = new Object[capacity];
+        int mask = capacity - 1;
+        for (Object o : old) {
+            if (o != null && o != REMOVED) {
+                int i = slot(o, mask);
+                while (table[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = o;
+            }
+        }
+        used = size;
+    }
+
+    @Override
+    public Collection<T> values() {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new TableIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<T> keySet() {
+        return new AbstractSet<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new TableIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return FlatHashTable.this.remove(o) != null;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<T, T>> entrySet() {
+        return new AbstractSet<Entry<T, T>>() {
+            @Override
+            public Iterator<Entry<T, T>> iterator() {
+                TableIterator iterator = new TableIterator();
+                return new Iterator<Entry<T, T>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<T, T> next() {
+                        T t = iterator.next();
+                        return new SimpleImmutableEntry<>(t, t);
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private final class TableIterator implements Iterator<T> {
+
+        private final Object[] table = FlatHashTable.this.table;
+        private int expectedModCount = modCount;
+        private int next = -1;
+        private int last = -1;
+
+        private TableIterator() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < table.length && (table[next] == null || table[next] == REMOVED));
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < table.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= table.length) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return (T) table[last];
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            table[last] = REMOVED;
+            size--;
+            expectedModCount = ++modCount;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.matteo.utils.collection;
+
+import java.util.Comparator;
+
+/**
+ * A {@link Node} compared by identity, so that equals and hashCode are O(1) whatever the depth.
+ * Clones keep this type, hence trees built from it through cloneTree, subTree, find, filteredTree or computeIfAbsentPath do as well.
+ */
+public class IdentityNode<K extends Comparable<K>, V> extends Node<K, V> {
+
+    public IdentityNode() {
+        super();
+    }
+
+    public IdentityNode(Comparator<K> comparator) {
+        super(comparator);
+    }
+
+    public IdentityNode(K key) {
+        super(key);
+    }
+
+    public IdentityNode(K key, V value) {
+        super(key, value);
+    }
+
+    public IdentityNode(K key, Comparator<K> comparator) {
+        super(key, comparator);
+    }
+
+    public IdentityNode(K key, V value, Comparator<K> comparator) {
+        super(key, value, comparator);
+    }
+
+    public IdentityNode(Node<K, V> node) {
+        super(node);
+    }
+
+    @Override
+    public Node<K, V> cloneNode() {
+        return new IdentityNode<>(this);
+    }
+
+    @Override
+    protected Node<K, V> createNode(K key, V value) {
+        return new IdentityNode<>(key, value, children().comparator);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+}
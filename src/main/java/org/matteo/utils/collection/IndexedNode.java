@@ -0,0 +1,120 @@
+package org.matteo.utils.collection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A root {@link Node} keeping an index from key to the nodes of its tree, so that {@link #find(Comparable)}
+ * becomes a lookup plus the reconstruction of the branches.
+ * The index is maintained on every mutation of the tree and is used only while this node is a root:
+ * once attached to a parent it is dropped and rebuilt lazily when this node becomes a root again.
+ * Clones are plain nodes.
+ */
+public class IndexedNode<K extends Comparable<K>, V> extends Node<K, V> {
+
+    private final Map<K, Object> index = new HashMap<>();
+    private boolean valid = true;
+
+    public IndexedNode() {
+        super();
+    }
+
+    public IndexedNode(Comparator<K> comparator) {
+        super(comparator);
+    }
+
+    public IndexedNode(K key) {
+        super(key);
+    }
+
+    public IndexedNode(K key, V value) {
+        super(key, value);
+    }
+
+    public IndexedNode(K key, Comparator<K> comparator) {
+        super(key, comparator);
+    }
+
+    public IndexedNode(K key, V value, Comparator<K> comparator) {
+        super(key, value, comparator);
+    }
+
+    @Override
+    public void setParent(Node<K, V> parent) {
+        super.setParent(parent);
+        if (parent != null && valid) {
+            valid = false;
+            index.clear();
+        }
+    }
+
+    @Override
+    void attached(Node<K, V> subtree) {
+        if (valid) {
+            subtree.traverseByDepthTopDown(this::index);
+        }
+    }
+
+    @Override
+    void detached(Node<K, V> subtree) {
+        if (valid) {
+            subtree.traverseByDepthTopDown(this::unindex);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Collection<Node<K, V>> lookup(K key) {
+        if (!isRoot()) {
+            return null;
+        }
+        if (!valid) {
+            for (Node<K, V> child : getChildren()) {
+                child.traverseByDepthTopDown(this::index);
+            }
+            valid = true;
+        }
+        Object nodes = index.get(key);
+        if (nodes == null) {
+            return Collections.emptyList();
+        } else if (nodes instanceof Node) {
+            return Collections.singletonList((Node<K, V>) nodes);
+        } else {
+            return (Set<Node<K, V>>) nodes;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void index(Node<K, V> node) {
+        Object nodes = index.putIfAbsent(node.getKey(), node);
+        if (nodes instanceof Node) {
+            if (nodes != node) {
+                Set<Node<K, V>> set = Collections.newSetFromMap(new IdentityHashMap<>(4));
+                set.add((Node<K, V>) nodes);
+                set.add(node);
+                index.put(node.getKey(), set);
+            }
+        } else if (nodes != null) {
+            ((Set<Node<K, V>>) nodes).add(node);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void unindex(Node<K, V> node) {
+        Object nodes = index.get(node.getKey());
+        if (nodes == node) {
+            index.remove(node.getKey());
+        } else if (nodes instanceof Set) {
+            Set<Node<K, V>> set = (Set<Node<K, V>>) nodes;
+            set.remove(node);
+            if (set.size() == 1) {
+                index.put(node.getKey(), set.iterator().next());
+            }
+        }
+    }
+}
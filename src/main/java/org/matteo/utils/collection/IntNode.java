@@ -0,0 +1,126 @@
+package org.matteo.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A tree node with a primitive int key, for the trees keyed by ids.
+ * Children are kept in two parallel arrays sorted by key, so lookups are a binary search over the int keys
+ * with no boxing nor comparator calls; inserting or removing a child shifts the arrays.
+ * The API follows {@link Node}, except that nodes are compared by identity; the key of a root created
+ * without one is 0.
+ */
+public class IntNode<V> extends PrimitiveNode<IntNode<V>, V> {
+
+    private static final int[] NO_KEYS = new int[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final IntNode[] NO_CHILDREN = new IntNode[0];
+
+    private final int key;
+
+    private int[] keys = NO_KEYS;
+
+    public IntNode() {
+        this(0);
+    }
+
+    public IntNode(int key) {
+        this(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public IntNode(int key, V value) {
+        super(value, NO_CHILDREN);
+        this.key = key;
+    }
+
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    @Override
+    int indexOfKey(IntNode<V> node) {
+        return indexOf(node.key);
+    }
+
+    @Override
+    void resizeKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void moveKeys(int from, int to, int length) {
+        System.arraycopy(keys, from, keys, to, length);
+    }
+
+    @Override
+    void setKey(int index, IntNode<V> node) {
+        keys[index] = node.key;
+    }
+
+    @Override
+    void copyKeys(IntNode<V> original, int from, int to) {
+        keys = Arrays.copyOfRange(original.keys, from, to);
+    }
+
+    @Override
+    String keyString() {
+        return String.valueOf(key);
+    }
+
+    public IntNode<V> remove(int key) {
+        return removeIndex(indexOf(key));
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public IntNode<V> getChild(int key) {
+        return childAt(indexOf(key));
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the descendant at the end of the path of keys, or null if a key is missing
+     */
+    public IntNode<V> getPath(int... path) {
+        return walk(path.length, (node, depth) -> node.indexOf(path[depth]));
+    }
+
+    public IntNode<V> computeIfAbsentPath(int... path) {
+        return computeIfAbsentPath(path, key -> null);
+    }
+
+    /**
+     * @param mappingFunction computes the value of each missing node from its key
+     * @return the node at the end of the path, created along with its missing ancestors
+     */
+    public IntNode<V> computeIfAbsentPath(int[] path, IntFunction<? extends V> mappingFunction) {
+        return walkOrCreate(path.length, (node, depth) -> node.indexOf(path[depth]),
+                depth -> createNode(path[depth], mappingFunction.apply(path[depth])));
+    }
+
+    @Override
+    public IntNode<V> cloneNode() {
+        return createNode(key, getValue());
+    }
+
+    /**
+     * Creates a detached node of the same kind as this one, used by the clones and by {@link #computeIfAbsentPath(int[], IntFunction)}
+     */
+    protected IntNode<V> createNode(int key, V value) {
+        return new IntNode<>(key, value);
+    }
+
+    /**
+     * @return a clone of this node with the branches leading to the descendants with the given key
+     */
+    public IntNode<V> find(int key) {
+        return findChildren(node -> node.indexOf(key));
+    }
+}
@@ -0,0 +1,126 @@
+package org.matteo.utils.collection;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A tree node with a primitive long key, for the trees keyed by ids or timestamps beyond the int range.
+ * Children are kept in two parallel arrays sorted by key, so lookups are a binary search over the long keys
+ * with no boxing nor comparator calls; inserting or removing a child shifts the arrays.
+ * The API follows {@link Node}, except that nodes are compared by identity; the key of a root created
+ * without one is 0.
+ */
+public class LongNode<V> extends PrimitiveNode<LongNode<V>, V> {
+
+    private static final long[] NO_KEYS = new long[0];
+
+    @SuppressWarnings("rawtypes")
+    private static final LongNode[] NO_CHILDREN = new LongNode[0];
+
+    private final long key;
+
+    private long[] keys = NO_KEYS;
+
+    public LongNode() {
+        this(0);
+    }
+
+    public LongNode(long key) {
+        this(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongNode(long key, V value) {
+        super(value, NO_CHILDREN);
+        this.key = key;
+    }
+
+    private int indexOf(long key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    @Override
+    int indexOfKey(LongNode<V> node) {
+        return indexOf(node.key);
+    }
+
+    @Override
+    void resizeKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    void moveKeys(int from, int to, int length) {
+        System.arraycopy(keys, from, keys, to, length);
+    }
+
+    @Override
+    void setKey(int index, LongNode<V> node) {
+        keys[index] = node.key;
+    }
+
+    @Override
+    void copyKeys(LongNode<V> original, int from, int to) {
+        keys = Arrays.copyOfRange(original.keys, from, to);
+    }
+
+    @Override
+    String keyString() {
+        return String.valueOf(key);
+    }
+
+    public LongNode<V> remove(long key) {
+        return removeIndex(indexOf(key));
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public LongNode<V> getChild(long key) {
+        return childAt(indexOf(key));
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the descendant at the end of the path of keys, or null if a key is missing
+     */
+    public LongNode<V> getPath(long... path) {
+        return walk(path.length, (node, depth) -> node.indexOf(path[depth]));
+    }
+
+    public LongNode<V> computeIfAbsentPath(long... path) {
+        return computeIfAbsentPath(path, key -> null);
+    }
+
+    /**
+     * @param mappingFunction computes the value of each missing node from its key
+     * @return the node at the end of the path, created along with its missing ancestors
+     */
+    public LongNode<V> computeIfAbsentPath(long[] path, LongFunction<? extends V> mappingFunction) {
+        return walkOrCreate(path.length, (node, depth) -> node.indexOf(path[depth]),
+                depth -> createNode(path[depth], mappingFunction.apply(path[depth])));
+    }
+
+    @Override
+    public LongNode<V> cloneNode() {
+        return createNode(key, getValue());
+    }
+
+    /**
+     * Creates a detached node of the same kind as this one, used by the clones and by {@link #computeIfAbsentPath(long[], LongFunction)}
+     */
+    protected LongNode<V> createNode(long key, V value) {
+        return new LongNode<>(key, value);
+    }
+
+    /**
+     * @return a clone of this node with the branches leading to the descendants with the given key
+     */
+    public LongNode<V> find(long key) {
+        return findChildren(node -> node.indexOf(key));
+    }
+}
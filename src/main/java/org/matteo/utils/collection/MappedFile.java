@@ -0,0 +1,82 @@
+package org.matteo.utils.collection;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped in segments, so that it can exceed the 2GB limit of a single buffer.
+ * Reads spanning two segments are assembled byte by byte.
+ */
+final class MappedFile {
+
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final ByteBuffer[] segments;
+    private final int segmentSize;
+    private final long length;
+
+    MappedFile(FileChannel channel, int segmentSize) throws IOException {
+        this.length = channel.size();
+        this.segmentSize = segmentSize;
+        int count = (int) ((length + segmentSize - 1) / segmentSize);
+        segments = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, length - position));
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    byte get(long position) {
+        return segments[(int) (position / segmentSize)].get((int) (position % segmentSize));
+    }
+
+    int getInt(long position) {
+        int offset = (int) (position % segmentSize);
+        ByteBuffer segment = segments[(int) (position / segmentSize)];
+        if (offset + Integer.BYTES <= segment.limit()) {
+            return segment.getInt(offset);
+        }
+        return (int) getBytes(position, Integer.BYTES);
+    }
+
+    long getLong(long position) {
+        int offset = (int) (position % segmentSize);
+        ByteBuffer segment = segments[(int) (position / segmentSize)];
+        if (offset + Long.BYTES <= segment.limit()) {
+            return segment.getLong(offset);
+        }
+        return getBytes(position, Long.BYTES);
+    }
+
+    private long getBytes(long position, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 8) | (get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return a buffer over the given range, copied only when it spans two segments
+     */
+    ByteBuffer slice(long position, int count) {
+        int offset = (int) (position % segmentSize);
+        ByteBuffer segment = segments[(int) (position / segmentSize)];
+        if (offset + count <= segment.limit()) {
+            ByteBuffer slice = segment.duplicate();
+            ((Buffer) slice).limit(offset + count).position(offset);
+            return slice;
+        }
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; i++) {
+            bytes[i] = get(position + i);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,200 @@
+package org.matteo.utils.collection;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Read-only view of a node in a file written by {@link NodeFile}.
+ * Only the header of the record is read when the view is created; keys and values are decoded
+ * on each access and children are found by binary search over the offset table,
+ * so navigating the tree touches only the pages on the way.
+ */
+public final class MappedNode<K extends Comparable<K>, V> {
+
+    private final MappedFile file;
+    private final long offset;
+    private final MappedNode<K, V> parent;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final Comparator<K> comparator;
+
+    private final long valuePosition;
+    private final int size;
+    private final int childCount;
+    private final long table;
+
+    MappedNode(MappedFile file, long offset, MappedNode<K, V> parent, Codec<K> keyCodec, Codec<V> valueCodec, Comparator<K> comparator) {
+        this.file = file;
+        this.offset = offset;
+        this.parent = parent;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.comparator = comparator;
+        int flags = file.get(offset);
+        long position = offset + 1;
+        if ((flags & NodeFile.KEY) != 0) {
+            position = skip(position);
+        }
+        valuePosition = (flags & NodeFile.VALUE) != 0 ? position : -1;
+        if (valuePosition >= 0) {
+            position = skip(position);
+        }
+        size = file.getInt(position);
+        childCount = file.getInt(position + Integer.BYTES);
+        table = position + 2 * Integer.BYTES;
+    }
+
+    /**
+     * @return the position right after the length-prefixed bytes at the given position
+     */
+    private long skip(long position) {
+        int length = length(position);
+        return position + varintSize(length) + length;
+    }
+
+    private <T> T decode(long position, Codec<T> codec) {
+        int length = length(position);
+        return codec.decode(file.slice(position + varintSize(length), length));
+    }
+
+    private int length(long position) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = file.get(position++);
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return length;
+    }
+
+    private static int varintSize(int length) {
+        int size = 1;
+        while ((length >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private K keyAt(long offset) {
+        return (file.get(offset) & NodeFile.KEY) != 0 ? decode(offset + 1, keyCodec) : null;
+    }
+
+    public K getKey() {
+        return keyAt(offset);
+    }
+
+    public V getValue() {
+        return valuePosition >= 0 ? decode(valuePosition, valueCodec) : null;
+    }
+
+    public MappedNode<K, V> getParent() {
+        return parent;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    public boolean isLeaf() {
+        return childCount == 0;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    /**
+     * @return the number of descendants
+     */
+    public int size() {
+        return size;
+    }
+
+    public MappedNode<K, V> getChild(int index) {
+        if (index < 0 || index >= childCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", children: " + childCount);
+        }
+        return new MappedNode<>(file, file.getLong(table + (long) Long.BYTES * index), this, keyCodec, valueCodec, comparator);
+    }
+
+    public MappedNode<K, V> getChild(K key) {
+        int low = 0;
+        int high = childCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparator.compare(keyAt(file.getLong(table + (long) Long.BYTES * middle)), key);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return getChild(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the descendant at the end of the path of keys, or null if there is none
+     */
+    public MappedNode<K, V> getPath(List<K> path) {
+        MappedNode<K, V> node = this;
+        for (int i = 0; i < path.size() && node != null; i++) {
+            node = node.getChild(path.get(i));
+        }
+        return node;
+    }
+
+    /**
+     * @return a view of the children, each read when accessed
+     */
+    public List<MappedNode<K, V>> getChildren() {
+        return new AbstractList<MappedNode<K, V>>() {
+            @Override
+            public MappedNode<K, V> get(int index) {
+                return getChild(index);
+            }
+
+            @Override
+            public int size() {
+                return childCount;
+            }
+        };
+    }
+
+    /**
+     * @return a {@link Node} tree with a copy of this subtree
+     */
+    public Node<K, V> toNode() {
+        Node<K, V> root = new Node<>(getKey(), getValue(), comparator);
+        Deque<Node<K, V>> targets = new ArrayDeque<>();
+        Deque<MappedNode<K, V>> sources = new ArrayDeque<>();
+        targets.push(root);
+        sources.push(this);
+        while (!sources.isEmpty()) {
+            Node<K, V> target = targets.pop();
+            MappedNode<K, V> source = sources.pop();
+            List<Node<K, V>> copies = new ArrayList<>(source.childCount);
+            for (int i = 0; i < source.childCount; i++) {
+                MappedNode<K, V> child = source.getChild(i);
+                Node<K, V> copy = new Node<>(child.getKey(), child.getValue(), comparator);
+                copies.add(copy);
+                targets.push(copy);
+                sources.push(child);
+            }
+            target.addAll(copies);
+        }
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + (childCount == 0 ? "" : " -> " + getChildren());
+    }
+}
@@ -1,8 +1,14 @@
 package org.matteo.utils.collection;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Created with IntelliJ IDEA.
@@ -11,16 +17,20 @@ import java.util.function.Predicate;
  */
 public class Node<K extends Comparable<K>, V> {
 
-    private final Comparator<K> comparator;
     private final K key;
 
     private V value;
 
     private Node<K, V> parent;
-    private TreeMap<K, Node<K, V>> children;
+    private Children<K, V> children;
+
+    /**
+     * Number of descendants, kept up to date on every mutation so that size() is O(1)
+     */
+    private int size;
 
     public Node() {
-        this(new NullSafeComparator<>());
+        this(NullSafeComparator.getInstance());
     }
 
     public Node(Comparator<K> comparator) {
@@ -28,11 +38,11 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public Node(K key) {
-        this(key, null, new NullSafeComparator<>());
+        this(key, null, NullSafeComparator.getInstance());
     }
 
     public Node(K key, V value) {
-        this(key, value, new NullSafeComparator<>());
+        this(key, value, NullSafeComparator.getInstance());
     }
 
     public Node(K key, Comparator<K> comparator) {
@@ -40,32 +50,96 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public Node(K key, V value, Comparator<K> comparator) {
-        this.comparator = comparator;
-        this.children = new TreeMap<>(comparator);
+        this.children = Children.empty(comparator);
         this.key = key;
         this.value = value;
     }
 
     public Node(Node<K, V> node) {
-        this(node.key, node.value, node.comparator);
+        this(node.key, node.value, node.children.comparator);
     }
 
     private void putNode(Node<K, V> child) {
-        children.put(child.getKey(), child);
-    }
-
-    private void putNodes(Collection<Node<K, V>> nodes) {
-        for (Node<K, V> child : nodes) {
-            children.put(child.key, child);
-        }
+        children = children.put(child);
     }
 
+    /**
+     * Attaches the child, first removing it from the parent it is still attached to,
+     * so that a node belongs to one tree and the sizes of its former ancestors stay exact
+     */
     private Node<K, V> put(Node<K, V> child) {
+        Node<K, V> source = child.parent;
+        if (source != null && source != this && source.children.get(child.key) == child) {
+            source.remove(child.key);
+        }
         child.setParent(this);
         putNode(child);
+        resize(child.size + 1).attached(child);
         return child;
     }
 
+    /**
+     * Adds delta to the size of this node and of its ancestors
+     *
+     * @return the root of the tree
+     */
+    private Node<K, V> resize(int delta) {
+        Node<K, V> node = this;
+        while (true) {
+            node.size += delta;
+            if (node.parent == null) {
+                return node;
+            }
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Called on the root when a subtree has been attached to the tree
+     */
+    void attached(Node<K, V> subtree) {
+    }
+
+    /**
+     * Called on the root when a subtree has been detached from the tree
+     */
+    void detached(Node<K, V> subtree) {
+    }
+
+    /**
+     * Called on the root to look up all the nodes with the given key
+     *
+     * @return the nodes, or null when the tree has no index
+     */
+    Collection<Node<K, V>> lookup(K key) {
+        return null;
+    }
+
+    private void setChildren(Children<K, V> children) {
+        this.children = children;
+        int count = 0;
+        for (Node<K, V> child : children) {
+            count += child.size + 1;
+        }
+        this.size = count;
+    }
+
+    /**
+     * Gives this leaf the nodes as children, already sorted by key without duplicates and with their subtrees complete
+     */
+    void putSorted(List<Node<K, V>> nodes) {
+        int count = 0;
+        for (Node<K, V> node : nodes) {
+            node.setParent(this);
+            count += node.size + 1;
+        }
+        children = Children.ofSorted(children.comparator, nodes);
+        Node<K, V> root = resize(count);
+        for (Node<K, V> node : nodes) {
+            root.attached(node);
+        }
+    }
+
     private Node<K, V> addNode(Node<K, V> child) {
         Node<K, V> node = getChild(child);
         if (node == null) {
@@ -76,15 +150,17 @@ public class Node<K extends Comparable<K>, V> {
 
     public Node<K, V> add(Node<K, V> child) {
         Node<K, V> node = addNode(child);
-        for (Node<K, V> c : child.getChildren()) {
-            node.add(c);
+        if (node != child) {
+            for (Node<K, V> c : child.getChildrenList()) {
+                node.add(c);
+            }
         }
         return node;
     }
 
     public Node<K, V> addCollapseEmpty(Node<K, V> child) {
         Node<K, V> node = !child.isEmpty() ? addNode(child) : this;
-        for (Node<K, V> c : child.getChildren()) {
+        for (Node<K, V> c : child.getChildrenList()) {
             node.addCollapseEmpty(c);
         }
         return node;
@@ -93,7 +169,7 @@ public class Node<K extends Comparable<K>, V> {
     public Node<K, V> addSkipEmpty(Node<K, V> child) {
         if (!child.isEmpty()) {
             Node<K, V> node = addNode(child);
-            for (Node<K, V> c : child.getChildren()) {
+            for (Node<K, V> c : child.getChildrenList()) {
                 node.addSkipEmpty(c);
             }
             return node;
@@ -118,7 +194,7 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public Node<K, V> addAll(Collection<Node<K, V>> children) {
-        for (Node<K, V> node : children) {
+        for (Node<K, V> node : new ArrayList<>(children)) {
             Node<K, V> child = getChild(node);
             if (child != null) {
                 child.addAll(node.getChildren());
@@ -145,7 +221,7 @@ public class Node<K extends Comparable<K>, V> {
 
     public Node<K, V> replaceCollapseEmpty(Node<K, V> child) {
         Node<K, V> node = !child.isEmpty() ? replace(child) : remove(child);
-        for (Node<K, V> c : child.getChildren()) {
+        for (Node<K, V> c : child.getChildrenList()) {
             node.replaceCollapseEmpty(c);
         }
         return node;
@@ -154,7 +230,7 @@ public class Node<K extends Comparable<K>, V> {
     public Node<K, V> replaceSkipEmpty(Node<K, V> child) {
         if (!child.isEmpty()) {
             Node<K, V> node = replace(child);
-            for (Node<K, V> c : child.getChildren()) {
+            for (Node<K, V> c : child.getChildrenList()) {
                 node.replaceSkipEmpty(c);
             }
             return node;
@@ -198,7 +274,8 @@ public class Node<K extends Comparable<K>, V> {
         Node<K, V> child = getChild(key);
         if (child != null) {
             child.setParent(null);
-            children.remove(key);
+            children = children.remove(key);
+            resize(-(child.size + 1)).detached(child);
         }
         return this;
     }
@@ -222,30 +299,88 @@ public class Node<K extends Comparable<K>, V> {
         return this;
     }
 
+    /**
+     * Replaces each leaf with a copy of the child of childRoot with the same key, if any
+     */
     public Node<K, V> joinChildTree(Node<K, V> childRoot) {
-        for (Node<K, V> node : getLeaves()) {
-            Node<K, V> child = childRoot.getChild(node);
-            if (child != null) {
-                node.parent.replace(child);
-            }
-        }
-        return this;
+        return graft(childRoot, false);
     }
 
+    /**
+     * Replaces each leaf with a copy of the child of childRoot with the same key, removing the branches of the other leaves
+     */
     public Node<K, V> intersectChildTree(Node<K, V> childRoot) {
-        for (Node<K, V> leaf : getLeaves()) {
-            Node<K, V> child = childRoot.getChild(leaf);
-            if (child != null) {
-                leaf.parent.replace(child);
+        return graft(childRoot, true);
+    }
+
+    /**
+     * Single post-order pass over the tree: matched leaves are replaced in place, the others are marked by clearing
+     * their parent and, only for the nodes that lost some children, the survivors are stored again at once
+     */
+    private Node<K, V> graft(Node<K, V> childRoot, boolean intersect) {
+        if (isLeaf()) {
+            return this;
+        }
+        Node<K, V> root = resize(0);
+        int before = size;
+        Deque<Frame<K, V, Void>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(this));
+        while (!stack.isEmpty()) {
+            Frame<K, V, Void> frame = stack.peek();
+            Node<K, V> node = frame.node;
+            if (frame.iterator.hasNext()) {
+                Node<K, V> child = frame.iterator.next();
+                if (!child.isLeaf()) {
+                    stack.push(new Frame<>(child));
+                    continue;
+                }
+                Node<K, V> match = childRoot.getChild(child.key);
+                if (match != null || intersect) {
+                    child.parent = null;
+                    root.detached(child);
+                }
+                if (match != null) {
+                    Node<K, V> copy = match.cloneTree();
+                    copy.setParent(node);
+                    node.putNode(copy);
+                    root.attached(copy);
+                } else if (intersect) {
+                    frame.dropped = true;
+                }
             } else {
-                leaf.removeBranch();
+                stack.pop();
+                if (frame.dropped) {
+                    List<Node<K, V>> survivors = new ArrayList<>(node.children.size());
+                    for (Node<K, V> child : node.children) {
+                        if (child.parent != null) {
+                            survivors.add(child);
+                        }
+                    }
+                    node.children = Children.ofSorted(node.children.comparator, survivors);
+                }
+                int count = 0;
+                for (Node<K, V> child : node.children) {
+                    count += child.size + 1;
+                }
+                node.size = count;
+                if (intersect && node.children.isEmpty() && !stack.isEmpty()) {
+                    node.parent = null;
+                    root.detached(node);
+                    stack.peek().dropped = true;
+                }
+            }
+        }
+        if (parent != null) {
+            parent.resize(size - before);
+            if (intersect && children.isEmpty()) {
+                removeBranch();
             }
         }
         return this;
     }
 
     public Node<K, V> merge(Node<K, V> root) {
-        for (Node<K, V> otherChild : root.getChildren()) {
+        for (Node<K, V> otherChild : root.getChildrenList()) {
             Node<K, V> child = getChild(otherChild);
             if (child != null) {
                 child.merge(otherChild);
@@ -258,119 +393,388 @@ public class Node<K extends Comparable<K>, V> {
 
     public Node<K, V> subTree(Node<K, V> from) {
         Node<K, V> root = cloneNode();
-        root.children.putAll(children.tailMap(from.key));
+        root.setChildren(children.slice(lowerBound(from.key), children.size()));
         return root;
     }
 
     public Node<K, V> subTree(Node<K, V> from, Node<K, V> to) {
         Node<K, V> root = cloneNode();
-        root.children.putAll(children.subMap(from.key, true, to.key, true));
+        int index = children.indexOf(to.key);
+        root.setChildren(children.slice(lowerBound(from.key), index >= 0 ? index + 1 : -(index + 1)));
         return root;
     }
 
+    private int lowerBound(K key) {
+        int index = children.indexOf(key);
+        return index >= 0 ? index : -(index + 1);
+    }
+
     public Node<K, V> cloneNode() {
         return new Node<>(this);
     }
 
+    /**
+     * Creates a detached node of the same kind as this one, used for the nodes built by {@link #computeIfAbsentPath(List, Function)}
+     */
+    protected Node<K, V> createNode(K key, V value) {
+        return new Node<>(key, value, children.comparator);
+    }
+
     public Node<K, V> subTree(int from, int size) {
         Node<K, V> root = cloneNode();
-        List<Node<K, V>> list = getChildrenList();
         if (from < 0) {
             from = 0;
         }
         int to = from + size;
-        if (to > list.size()) {
-            to = list.size();
+        if (to > children.size()) {
+            to = children.size();
         }
-        root.putNodes(list.subList(from, to));
+        root.setChildren(children.slice(from, to));
         return root;
     }
 
     public Node<K, V> filteredTree(Predicate<Node<K, V>> predicate) {
-        return filter(this, this, cloneNode(), predicate);
+        return branches(this, cloneNode(), filter(this, predicate, new ArrayList<>()));
+    }
+
+    /**
+     * Same as {@link #subTree(Node)}, as a view instead of a clone
+     */
+    public NodeView<K, V> subTreeView(Node<K, V> from) {
+        return NodeView.range(this, from.key, null, false);
     }
 
-    private Node<K, V> filter(Node<K, V> ancestor, Node<K, V> current, Node<K, V> root, Predicate<Node<K, V>> predicate) {
-        for (Node<K, V> node : current.getChildren()) {
+    /**
+     * Same as {@link #subTree(Node, Node)}, as a view instead of a clone
+     */
+    public NodeView<K, V> subTreeView(Node<K, V> from, Node<K, V> to) {
+        return NodeView.range(this, from.key, to.key, true);
+    }
+
+    /**
+     * Same as {@link #subTree(int, int)}, as a view instead of a clone
+     */
+    public NodeView<K, V> subTreeView(int from, int size) {
+        from = Math.max(from, 0);
+        return NodeView.page(this, from, (int) Math.min((long) from + size, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Same as {@link #filteredTree(Predicate)}, as a view evaluating the predicate while iterating
+     */
+    public NodeView<K, V> filteredView(Predicate<Node<K, V>> predicate) {
+        return NodeView.filtered(this, predicate);
+    }
+
+    private List<Node<K, V>> filter(Node<K, V> current, Predicate<Node<K, V>> predicate, List<Node<K, V>> found) {
+        topDown(current, node -> {
             if (predicate.test(node)) {
-                root.add(node.getBranch(ancestor));
+                found.add(node);
+            }
+        });
+        return found;
+    }
+
+    public Node<K, V> find(K key) {
+        return find(key, tNode -> true);
+    }
+
+    /**
+     * Finds the descendants with the given key, using the index when the root is an {@link IndexedNode}
+     *
+     * @return a clone of this node with the branches from the root to the nodes found
+     */
+    public Node<K, V> find(K key, Predicate<Node<K, V>> predicate) {
+        Node<K, V> root = isRoot() ? this : getRoot();
+        Collection<Node<K, V>> candidates = root.lookup(key);
+        List<Node<K, V>> found = new ArrayList<>();
+        if (candidates != null) {
+            TreeMap<Integer, List<Node<K, V>>> byDepth = new TreeMap<>();
+            for (Node<K, V> candidate : candidates) {
+                int depth = candidate.getDepth(this);
+                if (depth > 0 && predicate.test(candidate)) {
+                    byDepth.computeIfAbsent(depth, d -> new ArrayList<>()).add(candidate);
+                }
+            }
+            for (List<Node<K, V>> nodes : byDepth.values()) {
+                found.addAll(nodes);
             }
+        } else {
+            find(key, this, predicate, found);
         }
-        for (Node<K, V> child : current.getChildren()) {
-            child.filter(ancestor, child, root, predicate);
+        return branches(root, cloneNode(), found);
+    }
+
+    private void find(K key, Node<K, V> current, Predicate<Node<K, V>> predicate, List<Node<K, V>> found) {
+        current.traverseByDepthTopDown(parent -> {
+            Node<K, V> node = parent.getChild(key);
+            if (node != null && predicate.test(node)) {
+                found.add(node);
+            }
+        });
+    }
+
+    /**
+     * Builds in a single pass the branches from the ancestor to each of the nodes, cloning every common ancestor once.
+     * Nodes must be descendants of the ancestor, listed so that ancestors come before their descendants;
+     * the clone of each node gets a copy of the children of the original as in {@link #getBranch(Node)}.
+     * Nodes detached by {@link #clearBranch()} do not reach the ancestor and are skipped.
+     */
+    private static <K extends Comparable<K>, V> Node<K, V> branches(Node<K, V> ancestor, Node<K, V> root, Collection<Node<K, V>> nodes) {
+        Map<Node<K, V>, Node<K, V>> clones = new IdentityHashMap<>();
+        Set<Node<K, V>> complete = Collections.newSetFromMap(new IdentityHashMap<>());
+        clones.put(ancestor, root);
+        for (Node<K, V> node : nodes) {
+            Node<K, V> clone = node.cloneNode();
+            clone.children = node.children.copy();
+            clone.size = node.size;
+            clones.put(node, clone);
+            complete.add(node);
+            Node<K, V> current = clone;
+            Node<K, V> parent = node.parent;
+            Node<K, V> parentClone = null;
+            while (parent != null && (parentClone = clones.get(parent)) == null) {
+                parentClone = parent.cloneNode();
+                parentClone.put(current);
+                clones.put(parent, parentClone);
+                current = parentClone;
+                parent = parent.parent;
+            }
+            if (parent != null && !complete.contains(parent)) {
+                parentClone.put(current);
+            }
         }
         return root;
     }
 
-    public Node<K, V> find(K key) {
-        return find(key, this, cloneNode(), tNode -> true);
+    /**
+     * Compares this tree with the other one, walking the sorted children of both in lockstep
+     *
+     * @return the nodes added in the other tree, those removed from this one and those whose value changed
+     */
+    public NodeDiff<K, V> diff(Node<K, V> other) {
+        NodeDiff<K, V> diff = new NodeDiff<>();
+        diff(other, diff);
+        return diff;
     }
 
-    public Node<K, V> find(K key, Predicate<Node<K, V>> predicate) {
-        return find(key, this, cloneNode(), predicate);
+    public void diff(Node<K, V> other, NodeDiffVisitor<K, V> visitor) {
+        diff(other, Objects::equals, visitor);
     }
 
-    private Node<K, V> find(K key, Node<K, V> current, Node<K, V> root, Predicate<Node<K, V>> predicate) {
-        Node<K, V> found = current.getChild(key);
-        if (found != null && predicate.test(found)) {
-            root.add(found.getBranch());
+    /**
+     * Streams the differences with the other tree to the visitor, without collecting them
+     *
+     * @param equality tells whether the values of two nodes with the same path are the same
+     */
+    public void diff(Node<K, V> other, BiPredicate<? super V, ? super V> equality, NodeDiffVisitor<K, V> visitor) {
+        Comparator<K> comparator = children.comparator;
+        if (!equality.test(value, other.value)) {
+            visitor.changed(this, other);
         }
-        for (Node<K, V> child : current.getChildren()) {
-            child.find(key, child, root, predicate);
+        Deque<DiffFrame<K, V>> stack = new ArrayDeque<>();
+        stack.push(new DiffFrame<>(this, other));
+        while (!stack.isEmpty()) {
+            DiffFrame<K, V> frame = stack.peek();
+            Node<K, V> left = frame.left;
+            Node<K, V> right = frame.right;
+            if (left == null && right == null) {
+                stack.pop();
+                continue;
+            }
+            int cmp = left == null ? 1 : right == null ? -1 : comparator.compare(left.key, right.key);
+            if (cmp < 0) {
+                visitor.removed(left);
+                frame.nextLeft();
+            } else if (cmp > 0) {
+                visitor.added(right);
+                frame.nextRight();
+            } else {
+                frame.nextLeft();
+                frame.nextRight();
+                if (!equality.test(left.value, right.value)) {
+                    visitor.changed(left, right);
+                }
+                stack.push(new DiffFrame<>(left, right));
+            }
         }
-        return root;
     }
 
     public Node<K, V> cloneTree() {
-        Node<K, V> root = cloneNode();
-        for (Node<K, V> child : children.values()) {
-            root.put(child.cloneTree());
-        }
-        return root;
+        return aggregate((node, clones) -> {
+            Node<K, V> clone = node.cloneNode();
+            for (Node<K, V> child : clones) {
+                clone.put(child);
+            }
+            return clone;
+        });
     }
 
     public void traverseByDepthTopDown(Consumer<Node<K, V>> consumer) {
-        consumer.accept(this);
-        for (Node<K, V> child : children.values()) {
-            child.traverseByDepthTopDown(consumer);
-        }
+        new NodeSpliterator<>(this).forEachRemaining(consumer);
     }
 
     public void traverseByDepthBottomUp(Consumer<Node<K, V>> consumer) {
-        for (Node<K, V> child : children.values()) {
-            child.traverseByDepthBottomUp(consumer);
+        Deque<Frame<K, V, Void>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(this));
+        while (!stack.isEmpty()) {
+            Frame<K, V, Void> frame = stack.peek();
+            if (frame.iterator.hasNext()) {
+                stack.push(new Frame<>(frame.iterator.next()));
+            } else {
+                consumer.accept(stack.pop().node);
+            }
         }
-        consumer.accept(this);
     }
 
     public void traverseByBreadthTopDown(Consumer<Node<K, V>> consumer) {
         consumer.accept(this);
-        topDown(children.values(), consumer);
+        topDown(this, consumer);
     }
 
-    private void topDown(Collection<Node<K, V>> children, Consumer<Node<K, V>> consumer) {
-        for (Node<K, V> child : children) {
+    /**
+     * Visits the descendants of the node one sibling group at a time, each group before the groups of its members
+     */
+    private static <K extends Comparable<K>, V> void topDown(Node<K, V> node, Consumer<Node<K, V>> consumer) {
+        Deque<Iterator<Node<K, V>>> stack = new ArrayDeque<>();
+        for (Node<K, V> child : node.children) {
             consumer.accept(child);
         }
-        for (Node<K, V> child : children) {
-            topDown(child.getChildren(), consumer);
+        stack.push(node.children.iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Node<K, V>> iterator = stack.peek();
+            if (iterator.hasNext()) {
+                Node<K, V> next = iterator.next();
+                for (Node<K, V> child : next.children) {
+                    consumer.accept(child);
+                }
+                stack.push(next.children.iterator());
+            } else {
+                stack.pop();
+            }
         }
     }
 
     public void traverseByBreadthBottomUp(Consumer<Node<K, V>> consumer) {
-        bottomUp(children.values(), consumer);
+        Deque<Frame<K, V, Void>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(this));
+        while (!stack.isEmpty()) {
+            Frame<K, V, Void> frame = stack.peek();
+            if (frame.iterator.hasNext()) {
+                stack.push(new Frame<>(frame.iterator.next()));
+            } else {
+                for (Node<K, V> child : stack.pop().node.children) {
+                    consumer.accept(child);
+                }
+            }
+        }
         consumer.accept(this);
     }
 
-    private void bottomUp(Collection<Node<K, V>> children, Consumer<Node<K, V>> consumer) {
-        for (Node<K, V> child : children) {
-            bottomUp(child.getChildren(), consumer);
-        }
-        for (Node<K, V> child : children) {
-            consumer.accept(child);
+    /**
+     * Streams the nodes of this tree in depth-first pre-order, this node first.
+     * The stream is sized and splits into subtrees, so it can run in parallel without materializing the nodes.
+     */
+    public Stream<Node<K, V>> stream() {
+        return StreamSupport.stream(new NodeSpliterator<>(this), false);
+    }
+
+    /**
+     * Streams the leaves of this tree, in the order of {@link #getLeaves()}
+     */
+    public Stream<Node<K, V>> leafStream() {
+        return stream().filter(Node::isLeaf);
+    }
+
+    /**
+     * Same as {@link #traverseByDepthTopDown(Consumer)} on the common fork-join pool: every node is visited
+     * after its ancestors, siblings may be visited concurrently so the consumer must be thread safe
+     */
+    public void parallelTraverseByDepthTopDown(Consumer<Node<K, V>> consumer) {
+        parallelTraverseByDepthTopDown(consumer, ParallelTraversal.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the number of nodes below which a subtree is traversed sequentially
+     */
+    public void parallelTraverseByDepthTopDown(Consumer<Node<K, V>> consumer, int threshold) {
+        ParallelTraversal.topDown(this, consumer, threshold);
+    }
+
+    /**
+     * Same as {@link #traverseByDepthBottomUp(Consumer)} on the common fork-join pool: every node is visited
+     * after its descendants, siblings may be visited concurrently so the consumer must be thread safe
+     */
+    public void parallelTraverseByDepthBottomUp(Consumer<Node<K, V>> consumer) {
+        parallelTraverseByDepthBottomUp(consumer, ParallelTraversal.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the number of nodes below which a subtree is traversed sequentially
+     */
+    public void parallelTraverseByDepthBottomUp(Consumer<Node<K, V>> consumer, int threshold) {
+        ParallelTraversal.bottomUp(this, consumer, threshold);
+    }
+
+    /**
+     * Rolls the tree up bottom-up: the aggregator gets each node with the results of its children, in order
+     *
+     * @return the result for this node
+     */
+    public <R> R aggregate(BiFunction<Node<K, V>, List<R>, R> aggregator) {
+        Deque<Frame<K, V, R>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(this));
+        while (true) {
+            Frame<K, V, R> frame = stack.peek();
+            if (frame.iterator.hasNext()) {
+                stack.push(new Frame<>(frame.iterator.next()));
+            } else {
+                stack.pop();
+                R result = aggregator.apply(frame.node, frame.results != null ? frame.results : Collections.emptyList());
+                if (stack.isEmpty()) {
+                    return result;
+                }
+                stack.peek().add(result);
+            }
         }
     }
 
+    public <R> R parallelAggregate(BiFunction<Node<K, V>, List<R>, R> aggregator) {
+        return parallelAggregate(aggregator, ParallelTraversal.THRESHOLD);
+    }
+
+    /**
+     * @param threshold the number of nodes below which a subtree is aggregated sequentially
+     */
+    public <R> R parallelAggregate(BiFunction<Node<K, V>, List<R>, R> aggregator, int threshold) {
+        return ParallelTraversal.aggregate(this, aggregator, threshold);
+    }
+
+    /**
+     * Maps every node of the tree and combines the results, each node before its children
+     */
+    public <R> R reduce(Function<Node<K, V>, R> mapper, BinaryOperator<R> combiner) {
+        return aggregate(reducer(mapper, combiner));
+    }
+
+    public <R> R parallelReduce(Function<Node<K, V>, R> mapper, BinaryOperator<R> combiner) {
+        return parallelAggregate(reducer(mapper, combiner));
+    }
+
+    public <R> R parallelReduce(Function<Node<K, V>, R> mapper, BinaryOperator<R> combiner, int threshold) {
+        return parallelAggregate(reducer(mapper, combiner), threshold);
+    }
+
+    private static <K extends Comparable<K>, V, R> BiFunction<Node<K, V>, List<R>, R> reducer(Function<Node<K, V>, R> mapper, BinaryOperator<R> combiner) {
+        return (node, results) -> {
+            R result = mapper.apply(node);
+            for (R r : results) {
+                result = combiner.apply(result, r);
+            }
+            return result;
+        };
+    }
+
     public boolean isEmpty() {
         return key == null;
     }
@@ -398,14 +802,27 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public Node<K, V> getBranch() {
-        return getBranch(getRoot());
+        return branch(getRoot());
     }
 
     public Node<K, V> getBranch(Node<K, V> ancestor) {
-        Node<K, V> root = cloneNode();
-        root.children = children;
         Node<K, V> node = parent;
         while (node != null && !node.equals(ancestor)) {
+            node = node.parent;
+        }
+        return branch(node);
+    }
+
+    /**
+     * Builds the branch up to the given ancestor instance, compared by identity
+     * so that the cost does not depend on the depth of the ancestors
+     */
+    private Node<K, V> branch(Node<K, V> ancestor) {
+        Node<K, V> root = cloneNode();
+        root.children = children.copy();
+        root.size = size;
+        Node<K, V> node = parent;
+        while (node != null && node != ancestor) {
             root = root.replaceTo(node.cloneNode());
             node = node.parent;
         }
@@ -413,11 +830,11 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public boolean contains(Node<K, V> child) {
-        return children.containsKey(child.key);
+        return children.get(child.key) != null;
     }
 
     public boolean containsKey(K key) {
-        return children.containsKey(key);
+        return children.get(key) != null;
     }
 
     public Node<K, V> getChild(K key) {
@@ -428,20 +845,106 @@ public class Node<K extends Comparable<K>, V> {
         return children.get(child.key);
     }
 
+    @SafeVarargs
+    public final Node<K, V> getPath(K... path) {
+        return getPath(Arrays.asList(path));
+    }
+
+    /**
+     * @return the descendant at the end of the path of keys, or null if there is none
+     */
+    public Node<K, V> getPath(List<K> path) {
+        Node<K, V> node = this;
+        for (int i = 0; i < path.size() && node != null; i++) {
+            node = node.children.get(path.get(i));
+        }
+        return node;
+    }
+
+    public Node<K, V> computeIfAbsentPath(List<K> path) {
+        return computeIfAbsentPath(path, key -> null);
+    }
+
+    /**
+     * Walks the path of keys, creating the missing nodes with the value computed from their key.
+     * The missing part of the path is built detached and attached with a single put.
+     *
+     * @return the node at the end of the path
+     */
+    public Node<K, V> computeIfAbsentPath(List<K> path, Function<? super K, ? extends V> mappingFunction) {
+        Node<K, V> node = this;
+        int depth = 0;
+        for (Node<K, V> child; depth < path.size() && (child = node.children.get(path.get(depth))) != null; depth++) {
+            node = child;
+        }
+        if (depth == path.size()) {
+            return node;
+        }
+        Node<K, V> leaf = null;
+        Node<K, V> branch = null;
+        for (int i = path.size() - 1; i >= depth; i--) {
+            K key = path.get(i);
+            Node<K, V> created = createNode(key, mappingFunction.apply(key));
+            if (branch == null) {
+                leaf = created;
+            } else {
+                created.put(branch);
+            }
+            branch = created;
+        }
+        node.put(branch);
+        return leaf;
+    }
+
+    /**
+     * Read-only view of the descendants at the depth of the paths, whose path of keys from this node
+     * is between from and to, both inclusive. The view is walked lazily in key order, pruning the
+     * children out of range at each level; its size is counted by walking it.
+     */
+    public Collection<Node<K, V>> range(List<K> from, List<K> to) {
+        if (from.isEmpty() || from.size() != to.size()) {
+            throw new IllegalArgumentException("Paths must be non-empty and of the same length: " + from + ", " + to);
+        }
+        return new AbstractCollection<Node<K, V>>() {
+            @Override
+            public Iterator<Node<K, V>> iterator() {
+                return new RangeIterator(from, to);
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Iterator<Node<K, V>> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                    size++;
+                }
+                return size;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return !iterator().hasNext();
+            }
+        };
+    }
+
     public Node<K, V> getFirstChild() {
-        return !children.isEmpty() ? children.firstEntry().getValue() : null;
+        return children.first();
     }
 
     public Collection<Node<K, V>> getChildren() {
-        return children.values();
+        return new ChildrenView();
     }
 
     public List<K> getChildrenKeyList() {
-        return new ArrayList<>(children.keySet());
+        List<K> keys = new ArrayList<>(children.size());
+        for (Node<K, V> child : children) {
+            keys.add(child.key);
+        }
+        return keys;
     }
 
     public List<Node<K, V>> getChildrenList() {
-        return new ArrayList<>(children.values());
+        return new ArrayList<>(getChildren());
     }
 
     public List<Node<K, V>> getLeaves() {
@@ -449,13 +952,11 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     private List<Node<K, V>> getLeaves(List<Node<K, V>> leaves) {
-        if (isLeaf()) {
-            leaves.add(this);
-        } else {
-            for (Node<K, V> child : children.values()) {
-                child.getLeaves(leaves);
+        traverseByDepthTopDown(node -> {
+            if (node.isLeaf()) {
+                leaves.add(node);
             }
-        }
+        });
         return leaves;
     }
 
@@ -464,13 +965,11 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     private Map<K, Node<K, V>> getLeafMap(Map<K, Node<K, V>> leafMap) {
-        if (isLeaf()) {
-            leafMap.put(key, this);
-        } else {
-            for (Node<K, V> child : children.values()) {
-                child.getLeafMap(leafMap);
+        traverseByDepthTopDown(node -> {
+            if (node.isLeaf()) {
+                leafMap.put(node.key, node);
             }
-        }
+        });
         return leafMap;
     }
 
@@ -493,20 +992,41 @@ public class Node<K extends Comparable<K>, V> {
         return node;
     }
 
+    /**
+     * @return the number of edges from the root to this node
+     */
+    public int getDepth() {
+        int depth = 0;
+        for (Node<K, V> node = parent; node != null; node = node.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * @return the number of edges from the ancestor to this node, or -1 if it is not an ancestor
+     */
+    private int getDepth(Node<K, V> ancestor) {
+        int depth = 0;
+        for (Node<K, V> node = this; node != null; node = node.parent) {
+            if (node == ancestor) {
+                return depth;
+            }
+            depth++;
+        }
+        return -1;
+    }
+
     public int getChildCount() {
         return children.size();
     }
 
     public int size() {
-        int size = getChildCount();
-        for (Node<K, V> child : children.values()) {
-            size += child.size();
-        }
         return size;
     }
 
     public int getPosition() {
-        return parent != null ? Collections.binarySearch(parent.getChildrenKeyList(), key) : 0;
+        return parent != null ? parent.children.indexOf(key) : 0;
     }
 
     public boolean isRoot() {
@@ -518,21 +1038,42 @@ public class Node<K extends Comparable<K>, V> {
     }
 
     public void clear() {
+        Node<K, V> root = parent != null ? parent.resize(-size) : this;
+        for (Node<K, V> child : children) {
+            root.detached(child);
+        }
         parent = null;
-        children.clear();
+        children = children.clear();
+        size = 0;
     }
 
     public void clearBranch() {
-        for (Node<K, V> child : children.values()) {
-            child.destroy();
+        Node<K, V> root = resize(children.size() - size);
+        for (Node<K, V> child : children) {
+            for (Node<K, V> grandChild : child.children) {
+                root.detached(grandChild);
+            }
+            child.dispose();
         }
     }
 
+    private void dispose() {
+        traverseByDepthBottomUp(node -> {
+            node.parent = null;
+            node.children = node.children.clear();
+            node.size = 0;
+        });
+    }
+
     public void destroy() {
         clearBranch();
         clear();
     }
 
+    /**
+     * Two nodes are equal when they have the same key and equal parents, i.e. the same path.
+     * The cost is proportional to the depth, use {@link IdentityNode} when that matters.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -549,22 +1090,189 @@ public class Node<K extends Comparable<K>, V> {
 
     @Override
     public String toString() {
-        return key + (children.isEmpty() ? "" : " -> " + children.values());
+        return key + (children.isEmpty() ? "" : " -> " + getChildren());
     }
 
-}
+    Children<K, V> children() {
+        return children;
+    }
+
+    /**
+     * A node on the explicit stack of an iterative post-order traversal, with the results of its children collected so far
+     */
+    private static final class Frame<K extends Comparable<K>, V, R> {
+
+        private final Node<K, V> node;
+        private final Iterator<Node<K, V>> iterator;
+        private List<R> results;
+        private boolean dropped;
+
+        private Frame(Node<K, V> node) {
+            this.node = node;
+            this.iterator = node.children.iterator();
+        }
+
+        private void add(R result) {
+            if (results == null) {
+                results = new ArrayList<>(node.children.size());
+            }
+            results.add(result);
+        }
+    }
+
+    /**
+     * The children of two nodes being compared, with the next one of each side
+     */
+    private static final class DiffFrame<K extends Comparable<K>, V> {
+
+        private final Iterator<Node<K, V>> leftIterator;
+        private final Iterator<Node<K, V>> rightIterator;
+        private Node<K, V> left;
+        private Node<K, V> right;
+
+        private DiffFrame(Node<K, V> left, Node<K, V> right) {
+            this.leftIterator = left.children.iterator();
+            this.rightIterator = right.children.iterator();
+            nextLeft();
+            nextRight();
+        }
+
+        private void nextLeft() {
+            left = leftIterator.hasNext() ? leftIterator.next() : null;
+        }
+
+        private void nextRight() {
+            right = rightIterator.hasNext() ? rightIterator.next() : null;
+        }
+    }
+
+    /**
+     * Iterator over the descendants of this node in a range of paths, with a frame per level
+     * telling whether its children are on the lower or upper edge of the range
+     */
+    private final class RangeIterator implements Iterator<Node<K, V>> {
+
+        private final List<K> from;
+        private final List<K> to;
+        private final Deque<RangeFrame<K, V>> stack = new ArrayDeque<>();
+        private Node<K, V> next;
+
+        private RangeIterator(List<K> from, List<K> to) {
+            this.from = from;
+            this.to = to;
+            push(Node.this, true, true);
+            advance();
+        }
+
+        private void push(Node<K, V> node, boolean low, boolean high) {
+            int depth = stack.size();
+            int start = low ? node.lowerBound(from.get(depth)) : 0;
+            int end = node.children.size();
+            if (high) {
+                int index = node.children.indexOf(to.get(depth));
+                end = index >= 0 ? index + 1 : -(index + 1);
+            }
+            stack.push(new RangeFrame<>(node.children.iterator(start, Math.max(start, end)), low, high));
+        }
+
+        private void advance() {
+            next = null;
+            Comparator<K> comparator = children.comparator;
+            while (next == null && !stack.isEmpty()) {
+                RangeFrame<K, V> frame = stack.peek();
+                if (!frame.iterator.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                Node<K, V> child = frame.iterator.next();
+                int depth = stack.size() - 1;
+                if (depth == from.size() - 1) {
+                    next = child;
+                } else {
+                    push(child, frame.low && comparator.compare(child.key, from.get(depth)) == 0,
+                            frame.high && comparator.compare(child.key, to.get(depth)) == 0);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Node<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            advance();
+            return node;
+        }
+    }
+
+    private static final class RangeFrame<K extends Comparable<K>, V> {
+
+        private final Iterator<Node<K, V>> iterator;
+        private final boolean low;
+        private final boolean high;
+
+        private RangeFrame(Iterator<Node<K, V>> iterator, boolean low, boolean high) {
+            this.iterator = iterator;
+            this.low = low;
+            this.high = high;
+        }
+    }
+
+    private class ChildrenView extends AbstractCollection<Node<K, V>> {
 
-class NullSafeComparator<T extends Comparable<T>> implements Comparator<T> {
+        @Override
+        public Iterator<Node<K, V>> iterator() {
+            return new ChildrenIterator();
+        }
+
+        @Override
+        public int size() {
+            return children.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return children.isEmpty();
+        }
+    }
+
+    /**
+     * Iterates the children, removing them from this node through {@link #remove(Comparable)} so that sizes and hooks are updated
+     */
+    private class ChildrenIterator implements Iterator<Node<K, V>> {
 
-    public int compare(T t1, T t2) {
-        if (t1 != null && t2 != null) {
-            return t1.compareTo(t2);
-        } else if (t1 != null) {
-            return 1;
-        } else if (t2 != null) {
-            return -1;
+        private Iterator<Node<K, V>> iterator = children.iterator();
+        private int position;
+        private Node<K, V> last;
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Node<K, V> next() {
+            last = iterator.next();
+            position++;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            Node.this.remove(last.key);
+            last = null;
+            position--;
+            iterator = children.iterator(position, children.size());
         }
-        return 0;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,64 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The differences between two trees, collected by {@link Node#diff(Node)}
+ */
+public class NodeDiff<K extends Comparable<K>, V> implements NodeDiffVisitor<K, V> {
+
+    private final List<Node<K, V>> added = new ArrayList<>();
+    private final List<Node<K, V>> removed = new ArrayList<>();
+    private final List<Change<K, V>> changed = new ArrayList<>();
+
+    @Override
+    public void added(Node<K, V> node) {
+        added.add(node);
+    }
+
+    @Override
+    public void removed(Node<K, V> node) {
+        removed.add(node);
+    }
+
+    @Override
+    public void changed(Node<K, V> node, Node<K, V> other) {
+        changed.add(new Change<>(node, other));
+    }
+
+    public List<Node<K, V>> getAdded() {
+        return added;
+    }
+
+    public List<Node<K, V>> getRemoved() {
+        return removed;
+    }
+
+    public List<Change<K, V>> getChanged() {
+        return changed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    public static class Change<K extends Comparable<K>, V> {
+
+        private final Node<K, V> before;
+        private final Node<K, V> after;
+
+        Change(Node<K, V> before, Node<K, V> after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public Node<K, V> getBefore() {
+            return before;
+        }
+
+        public Node<K, V> getAfter() {
+            return after;
+        }
+    }
+}
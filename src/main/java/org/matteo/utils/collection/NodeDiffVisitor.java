@@ -0,0 +1,23 @@
+package org.matteo.utils.collection;
+
+/**
+ * Receives the differences between two trees as {@link Node#diff(Node, NodeDiffVisitor)} finds them.
+ * Added and removed subtrees are reported once, by their top node.
+ */
+public interface NodeDiffVisitor<K extends Comparable<K>, V> {
+
+    /**
+     * @param node a node of the other tree missing from this one
+     */
+    void added(Node<K, V> node);
+
+    /**
+     * @param node a node of this tree missing from the other one
+     */
+    void removed(Node<K, V> node);
+
+    /**
+     * @param node a node of this tree whose value differs from the one in the other tree
+     */
+    void changed(Node<K, V> node, Node<K, V> other);
+}
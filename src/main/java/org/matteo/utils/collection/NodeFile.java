@@ -0,0 +1,204 @@
+package org.matteo.utils.collection;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Binary file format for {@link Node} trees, read back through a memory-mapped {@link MappedNode} view.
+ * After a header the nodes are laid out in pre-order, each record made of:
+ * <pre>
+ * flags       byte, whether key and value are present
+ * key         varint length + bytes from the key codec, if present
+ * value       varint length + bytes from the value codec, if present
+ * size        int, number of descendants
+ * child count int
+ * children    long offset of the record of each child, in key order
+ * </pre>
+ * The offsets let a reader binary search the children of a node without reading its subtree.
+ */
+public final class NodeFile {
+
+    static final int MAGIC = 0x4E4F4445;
+    static final int VERSION = 1;
+    static final long ROOT = 8;
+
+    static final int KEY = 1;
+    static final int VALUE = 2;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private NodeFile() {
+    }
+
+    public static <K extends Comparable<K>, V> void write(Node<K, V> root, Path path, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer<K, V> writer = new Writer<>(channel, keyCodec, valueCodec);
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            Deque<Frame<K, V>> stack = new ArrayDeque<>();
+            stack.push(new Frame<>(root, writer.write(root)));
+            while (!stack.isEmpty()) {
+                Frame<K, V> frame = stack.peek();
+                if (frame.iterator.hasNext()) {
+                    Node<K, V> child = frame.iterator.next();
+                    writer.patch(frame.table + (long) Long.BYTES * frame.index++, writer.position());
+                    stack.push(new Frame<>(child, writer.write(child)));
+                } else {
+                    stack.pop();
+                }
+            }
+            writer.flush();
+        }
+    }
+
+    public static <K extends Comparable<K>, V> MappedNode<K, V> map(Path path, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        return map(path, keyCodec, valueCodec, NullSafeComparator.getInstance());
+    }
+
+    /**
+     * @param comparator the one the tree was sorted with when written
+     */
+    public static <K extends Comparable<K>, V> MappedNode<K, V> map(Path path, Codec<K> keyCodec, Codec<V> valueCodec, Comparator<K> comparator) throws IOException {
+        return map(path, keyCodec, valueCodec, comparator, MappedFile.SEGMENT_SIZE);
+    }
+
+    static <K extends Comparable<K>, V> MappedNode<K, V> map(Path path, Codec<K> keyCodec, Codec<V> valueCodec, Comparator<K> comparator, int segmentSize) throws IOException {
+        MappedFile file;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            file = new MappedFile(channel, segmentSize);
+        }
+        if (file.length() < ROOT || file.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a node file");
+        }
+        if (file.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported node file version " + file.getInt(Integer.BYTES));
+        }
+        return new MappedNode<>(file, ROOT, null, keyCodec, valueCodec, comparator);
+    }
+
+    private static final class Frame<K extends Comparable<K>, V> {
+
+        private final Iterator<Node<K, V>> iterator;
+        private final long table;
+        private int index;
+
+        private Frame(Node<K, V> node, long table) {
+            this.iterator = node.getChildren().iterator();
+            this.table = table;
+        }
+    }
+
+    /**
+     * Buffered writer that can patch what it has already written, in the buffer or in the file
+     */
+    private static final class Writer<K extends Comparable<K>, V> {
+
+        private final FileChannel channel;
+        private final Codec<K> keyCodec;
+        private final Codec<V> valueCodec;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long flushed;
+
+        private Writer(FileChannel channel, Codec<K> keyCodec, Codec<V> valueCodec) {
+            this.channel = channel;
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+        }
+
+        /**
+         * Writes the record of the node with a zeroed offset table
+         *
+         * @return the position of the offset table
+         */
+        private long write(Node<K, V> node) throws IOException {
+            K key = node.getKey();
+            V value = node.getValue();
+            putByte((key != null ? KEY : 0) | (value != null ? VALUE : 0));
+            if (key != null) {
+                putBytes(keyCodec.encode(key));
+            }
+            if (value != null) {
+                putBytes(valueCodec.encode(value));
+            }
+            putInt(node.size());
+            putInt(node.getChildCount());
+            long table = position();
+            for (int i = 0; i < node.getChildCount(); i++) {
+                putLong(0);
+            }
+            return table;
+        }
+
+        private long position() {
+            return flushed + buffer.position();
+        }
+
+        private void ensure(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                flush();
+            }
+        }
+
+        private void putByte(int b) throws IOException {
+            ensure(1);
+            buffer.put((byte) b);
+        }
+
+        private void putInt(int i) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(i);
+        }
+
+        private void putLong(long l) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(l);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            int length = bytes.length;
+            while ((length & ~0x7F) != 0) {
+                putByte((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            putByte(length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        private void patch(long position, long value) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES).putLong(0, value);
+            if (position < flushed) {
+                int count = (int) Math.min(Long.BYTES, flushed - position);
+                ((Buffer) bytes).limit(count);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, position + bytes.position());
+                }
+                ((Buffer) bytes).limit(Long.BYTES);
+            }
+            while (bytes.hasRemaining()) {
+                buffer.put((int) (position + bytes.position() - flushed), bytes.get());
+            }
+        }
+
+        private void flush() throws IOException {
+            ((Buffer) buffer).flip();
+            while (buffer.hasRemaining()) {
+                flushed += channel.write(buffer, flushed);
+            }
+            ((Buffer) buffer).clear();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Depth-first pre-order spliterator over a tree, walking it with an explicit stack of pending subtrees.
+ * Splitting hands the first half of the pending subtrees to the new spliterator, expanding a single
+ * pending subtree into its children first; the subtree sizes make it exactly sized.
+ */
+final class NodeSpliterator<K extends Comparable<K>, V> implements Spliterator<Node<K, V>> {
+
+    private final Deque<Node<K, V>> pending;
+
+    /**
+     * A node whose children are already pending, to be returned before them
+     */
+    private Node<K, V> head;
+
+    private long remaining;
+
+    NodeSpliterator(Node<K, V> root) {
+        this.pending = new ArrayDeque<>();
+        this.pending.add(root);
+        this.remaining = root.size() + 1L;
+    }
+
+    private NodeSpliterator(Node<K, V> head, Deque<Node<K, V>> pending, long remaining) {
+        this.head = head;
+        this.pending = pending;
+        this.remaining = remaining;
+    }
+
+    private void expand(Node<K, V> node) {
+        Children<K, V> children = node.children();
+        for (int i = children.size() - 1; i >= 0; i--) {
+            pending.addFirst(children.get(i));
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Node<K, V>> action) {
+        Node<K, V> node = head;
+        if (node != null) {
+            head = null;
+            remaining--;
+            action.accept(node);
+            return true;
+        }
+        node = pending.pollFirst();
+        if (node == null) {
+            return false;
+        }
+        remaining--;
+        action.accept(node);
+        expand(node);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Node<K, V>> action) {
+        while (tryAdvance(action)) {
+            // all the work is done by tryAdvance
+        }
+    }
+
+    @Override
+    public Spliterator<Node<K, V>> trySplit() {
+        if (head == null && pending.size() == 1) {
+            head = pending.pollFirst();
+            expand(head);
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        int half = pending.size() >>> 1;
+        Deque<Node<K, V>> prefix = new ArrayDeque<>(Math.max(half, 1));
+        long count = head != null ? 1 : 0;
+        for (int i = 0; i < half; i++) {
+            Node<K, V> node = pending.pollFirst();
+            prefix.addLast(node);
+            count += node.size() + 1L;
+        }
+        NodeSpliterator<K, V> split = new NodeSpliterator<>(head, prefix, count);
+        head = null;
+        remaining -= count;
+        return split;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+}
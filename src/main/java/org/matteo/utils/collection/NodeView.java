@@ -0,0 +1,256 @@
+package org.matteo.utils.collection;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Read-only view of a {@link Node}, showing a range of its children or only the branches leading to
+ * the nodes matching a predicate, like {@link Node#subTree(int, int)} and {@link Node#filteredTree(Predicate)}
+ * but without copying, so a page of a large tree costs the size of the page.
+ * The view reflects later changes to the tree: ranges by key are resolved to positions on each access,
+ * ranges by position stay on the same positions. A filtered view marks the branches with a match
+ * in one pass over the subtree the first time it is accessed and keeps them, shared with the views of its children,
+ * until {@link #refresh()} is called.
+ */
+public final class NodeView<K extends Comparable<K>, V> {
+
+    private final Node<K, V> node;
+
+    private final int from;
+    private final int to;
+
+    private final boolean keyed;
+    private final K fromKey;
+    private final K toKey;
+    private final boolean toBounded;
+
+    private final Predicate<Node<K, V>> predicate;
+
+    /**
+     * Nodes with a match among their descendants, marked on first access or given by the view of the parent
+     */
+    private Set<Node<K, V>> marked;
+
+    private NodeView(Node<K, V> node, int from, int to, boolean keyed, K fromKey, K toKey, boolean toBounded,
+                     Predicate<Node<K, V>> predicate, Set<Node<K, V>> marked) {
+        this.node = node;
+        this.from = from;
+        this.to = to;
+        this.keyed = keyed;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.toBounded = toBounded;
+        this.predicate = predicate;
+        this.marked = marked;
+    }
+
+    NodeView(Node<K, V> node) {
+        this(node, 0, Integer.MAX_VALUE, false, null, null, false, null, null);
+    }
+
+    /**
+     * @return a view of the children between the positions, from inclusive and to exclusive
+     */
+    static <K extends Comparable<K>, V> NodeView<K, V> page(Node<K, V> node, int from, int to) {
+        return new NodeView<>(node, from, to, false, null, null, false, null, null);
+    }
+
+    /**
+     * @return a view of the children from the key, up to the other key inclusive if bounded
+     */
+    static <K extends Comparable<K>, V> NodeView<K, V> range(Node<K, V> node, K fromKey, K toKey, boolean toBounded) {
+        return new NodeView<>(node, 0, Integer.MAX_VALUE, true, fromKey, toKey, toBounded, null, null);
+    }
+
+    static <K extends Comparable<K>, V> NodeView<K, V> filtered(Node<K, V> node, Predicate<Node<K, V>> predicate) {
+        return new NodeView<>(node, 0, Integer.MAX_VALUE, false, null, null, false, predicate, null);
+    }
+
+    public Node<K, V> getNode() {
+        return node;
+    }
+
+    public K getKey() {
+        return node.getKey();
+    }
+
+    public V getValue() {
+        return node.getValue();
+    }
+
+    private int start() {
+        Children<K, V> children = node.children();
+        if (keyed) {
+            int index = children.indexOf(fromKey);
+            return index >= 0 ? index : -(index + 1);
+        }
+        return Math.min(from, children.size());
+    }
+
+    private int end() {
+        Children<K, V> children = node.children();
+        if (keyed) {
+            if (!toBounded) {
+                return children.size();
+            }
+            int index = children.indexOf(toKey);
+            return index >= 0 ? index + 1 : -(index + 1);
+        }
+        return Math.min(to, children.size());
+    }
+
+    /**
+     * @return a view of the children in the view, evaluated on iteration
+     */
+    public Collection<NodeView<K, V>> getChildren() {
+        return new AbstractCollection<NodeView<K, V>>() {
+            @Override
+            public Iterator<NodeView<K, V>> iterator() {
+                int start = start();
+                return new ChildIterator(node.children().iterator(start, Math.max(start, end())), marked());
+            }
+
+            @Override
+            public int size() {
+                return getChildCount();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return !iterator().hasNext();
+            }
+        };
+    }
+
+    private Set<Node<K, V>> marked() {
+        if (predicate != null && marked == null) {
+            marked = mark();
+        }
+        return marked;
+    }
+
+    /**
+     * Marks the branches of a filtered view again on next access, to reflect the changes to the tree since it was marked,
+     * the views of the children already returned keep the previous marks
+     */
+    public void refresh() {
+        if (predicate != null) {
+            marked = null;
+        }
+    }
+
+    /**
+     * Marks in a single post-order pass the nodes of the subtree with a match among their descendants
+     */
+    private Set<Node<K, V>> mark() {
+        Set<Node<K, V>> marked = Collections.newSetFromMap(new IdentityHashMap<>());
+        node.<Boolean>aggregate((n, results) -> {
+            boolean below = results.contains(Boolean.TRUE);
+            if (below) {
+                marked.add(n);
+            }
+            return below || predicate.test(n);
+        });
+        return marked;
+    }
+
+    /**
+     * @return the number of children in the view, counted by iterating when filtered
+     */
+    public int getChildCount() {
+        if (predicate == null) {
+            return Math.max(end() - start(), 0);
+        }
+        int count = 0;
+        for (Iterator<NodeView<K, V>> iterator = getChildren().iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    public boolean isLeaf() {
+        return getChildren().isEmpty();
+    }
+
+    /**
+     * @return a {@link Node} tree with a copy of the view
+     */
+    public Node<K, V> toNode() {
+        Node<K, V> root = node.cloneNode();
+        Deque<NodeView<K, V>> views = new ArrayDeque<>();
+        Deque<Node<K, V>> copies = new ArrayDeque<>();
+        views.push(this);
+        copies.push(root);
+        while (!views.isEmpty()) {
+            NodeView<K, V> view = views.pop();
+            Node<K, V> copy = copies.pop();
+            for (NodeView<K, V> child : view.getChildren()) {
+                if (child.predicate == null) {
+                    copy.add(child.node.cloneTree());
+                } else {
+                    Node<K, V> childCopy = copy.add(child.node.cloneNode());
+                    views.push(child);
+                    copies.push(childCopy);
+                }
+            }
+        }
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + (isLeaf() ? "" : " -> " + getChildren());
+    }
+
+    /**
+     * Goes through the children of the node, showing whole those matching the predicate, filtered those
+     * marked with a matching descendant, and skipping the others
+     */
+    private final class ChildIterator implements Iterator<NodeView<K, V>> {
+
+        private final Iterator<Node<K, V>> iterator;
+        private final Set<Node<K, V>> marked;
+        private NodeView<K, V> next;
+
+        private ChildIterator(Iterator<Node<K, V>> iterator, Set<Node<K, V>> marked) {
+            this.iterator = iterator;
+            this.marked = marked;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && iterator.hasNext()) {
+                Node<K, V> child = iterator.next();
+                if (predicate == null || predicate.test(child)) {
+                    next = new NodeView<>(child);
+                } else if (marked.contains(child)) {
+                    next = new NodeView<>(child, 0, Integer.MAX_VALUE, false, null, null, false, predicate, marked);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public NodeView<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            NodeView<K, V> view = next;
+            advance();
+            return view;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.matteo.utils.collection;
+
+import java.util.Comparator;
+
+/**
+ * Natural ordering with null keys first, the default ordering of the children of a node
+ */
+class NullSafeComparator<T extends Comparable<T>> implements Comparator<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final NullSafeComparator INSTANCE = new NullSafeComparator<>();
+
+    @SuppressWarnings("unchecked")
+    static <T extends Comparable<T>> NullSafeComparator<T> getInstance() {
+        return INSTANCE;
+    }
+
+    public int compare(T t1, T t2) {
+        if (t1 != null && t2 != null) {
+            return t1.compareTo(t2);
+        } else if (t1 != null) {
+            return 1;
+        } else if (t2 != null) {
+            return -1;
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,317 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Fork-join tasks behind the parallel traversals of {@link Node}.
+ * The nodes with more than threshold nodes in their subtree are walked by the invoking task with an explicit stack,
+ * so that the depth of the tree does not grow the call stack; the smaller sibling subtrees are gathered in batches
+ * of up to threshold nodes, relying on the O(1) subtree size to weigh them, and forked to be traversed sequentially.
+ */
+final class ParallelTraversal {
+
+    static final int THRESHOLD = 1 << 10;
+
+    private ParallelTraversal() {
+    }
+
+    static <K extends Comparable<K>, V> void topDown(Node<K, V> node, Consumer<Node<K, V>> consumer, int threshold) {
+        ForkJoinPool.commonPool().invoke(new TopDown<>(node, consumer, threshold));
+    }
+
+    static <K extends Comparable<K>, V> void bottomUp(Node<K, V> node, Consumer<Node<K, V>> consumer, int threshold) {
+        ForkJoinPool.commonPool().invoke(new BottomUp<>(node, consumer, threshold));
+    }
+
+    static <K extends Comparable<K>, V, R> R aggregate(Node<K, V> node, BiFunction<Node<K, V>, List<R>, R> aggregator, int threshold) {
+        return ForkJoinPool.commonPool().invoke(new Aggregate<>(node, aggregator, threshold));
+    }
+
+    private static int weight(Node<?, ?> node) {
+        return node.size() + 1;
+    }
+
+    /**
+     * Siblings being gathered in a batch to be forked
+     */
+    private static final class Batch<K extends Comparable<K>, V> {
+
+        private final int threshold;
+        private List<Node<K, V>> nodes = new ArrayList<>();
+        private int weight;
+
+        private Batch(int threshold) {
+            this.threshold = threshold;
+        }
+
+        /**
+         * @return the nodes gathered so far if the node does not fit with them, otherwise null
+         */
+        private List<Node<K, V>> add(Node<K, V> node) {
+            List<Node<K, V>> full = null;
+            if (weight + weight(node) > threshold && !nodes.isEmpty()) {
+                full = take();
+            }
+            nodes.add(node);
+            weight += weight(node);
+            return full;
+        }
+
+        /**
+         * @return the nodes gathered so far, or null if there are none
+         */
+        private List<Node<K, V>> take() {
+            if (nodes.isEmpty()) {
+                return null;
+            }
+            List<Node<K, V>> taken = nodes;
+            nodes = new ArrayList<>();
+            weight = 0;
+            return taken;
+        }
+    }
+
+    private static final class Sequential<K extends Comparable<K>, V> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node<K, V>> nodes;
+        private final Consumer<Node<K, V>> consumer;
+        private final boolean topDown;
+
+        private Sequential(List<Node<K, V>> nodes, Consumer<Node<K, V>> consumer, boolean topDown) {
+            this.nodes = nodes;
+            this.consumer = consumer;
+            this.topDown = topDown;
+        }
+
+        @Override
+        protected void compute() {
+            for (Node<K, V> node : nodes) {
+                if (topDown) {
+                    node.traverseByDepthTopDown(consumer);
+                } else {
+                    node.traverseByDepthBottomUp(consumer);
+                }
+            }
+        }
+    }
+
+    private static final class TopDown<K extends Comparable<K>, V> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node<K, V> root;
+        private final Consumer<Node<K, V>> consumer;
+        private final int threshold;
+
+        private TopDown(Node<K, V> root, Consumer<Node<K, V>> consumer, int threshold) {
+            this.root = root;
+            this.consumer = consumer;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (weight(root) <= threshold) {
+                root.traverseByDepthTopDown(consumer);
+                return;
+            }
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            Batch<K, V> batch = new Batch<>(threshold);
+            Deque<Node<K, V>> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node<K, V> node = stack.pop();
+                consumer.accept(node);
+                for (Node<K, V> child : node.getChildren()) {
+                    if (weight(child) > threshold) {
+                        stack.push(child);
+                    } else {
+                        fork(batch.add(child), tasks);
+                    }
+                }
+                fork(batch.take(), tasks);
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+
+        private void fork(List<Node<K, V>> nodes, List<ForkJoinTask<?>> tasks) {
+            if (nodes != null) {
+                tasks.add(new Sequential<>(nodes, consumer, true).fork());
+            }
+        }
+    }
+
+    /**
+     * A node with more than threshold nodes, waiting for its children
+     */
+    private static final class Frame<K extends Comparable<K>, V, T> {
+
+        private final Node<K, V> node;
+        private final Iterator<Node<K, V>> iterator;
+        private final Batch<K, V> batch;
+        private final List<T> slots = new ArrayList<>();
+
+        private Frame(Node<K, V> node, int threshold) {
+            this.node = node;
+            this.iterator = node.getChildren().iterator();
+            this.batch = new Batch<>(threshold);
+        }
+    }
+
+    private static final class BottomUp<K extends Comparable<K>, V> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node<K, V> root;
+        private final Consumer<Node<K, V>> consumer;
+        private final int threshold;
+
+        private BottomUp(Node<K, V> root, Consumer<Node<K, V>> consumer, int threshold) {
+            this.root = root;
+            this.consumer = consumer;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (weight(root) <= threshold) {
+                root.traverseByDepthBottomUp(consumer);
+                return;
+            }
+            Deque<Frame<K, V, ForkJoinTask<?>>> stack = new ArrayDeque<>();
+            stack.push(new Frame<>(root, threshold));
+            while (!stack.isEmpty()) {
+                Frame<K, V, ForkJoinTask<?>> frame = stack.peek();
+                if (frame.iterator.hasNext()) {
+                    Node<K, V> child = frame.iterator.next();
+                    if (weight(child) > threshold) {
+                        stack.push(new Frame<>(child, threshold));
+                    } else {
+                        fork(frame.batch.add(child), frame);
+                    }
+                } else {
+                    stack.pop();
+                    fork(frame.batch.take(), frame);
+                    for (ForkJoinTask<?> task : frame.slots) {
+                        task.join();
+                    }
+                    consumer.accept(frame.node);
+                }
+            }
+        }
+
+        private void fork(List<Node<K, V>> nodes, Frame<K, V, ForkJoinTask<?>> frame) {
+            if (nodes != null) {
+                frame.slots.add(new Sequential<>(nodes, consumer, false).fork());
+            }
+        }
+    }
+
+    private static final class Results<K extends Comparable<K>, V, R> extends RecursiveTask<List<R>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Node<K, V>> nodes;
+        private final BiFunction<Node<K, V>, List<R>, R> aggregator;
+
+        private Results(List<Node<K, V>> nodes, BiFunction<Node<K, V>, List<R>, R> aggregator) {
+            this.nodes = nodes;
+            this.aggregator = aggregator;
+        }
+
+        @Override
+        protected List<R> compute() {
+            List<R> results = new ArrayList<>(nodes.size());
+            for (Node<K, V> node : nodes) {
+                results.add(node.aggregate(aggregator));
+            }
+            return results;
+        }
+    }
+
+    /**
+     * The results of a run of children, either computed by the walk or by a forked batch
+     */
+    private static final class Slot<R> {
+
+        private final R result;
+        private final ForkJoinTask<List<R>> task;
+
+        private Slot(R result, ForkJoinTask<List<R>> task) {
+            this.result = result;
+            this.task = task;
+        }
+    }
+
+    private static final class Aggregate<K extends Comparable<K>, V, R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node<K, V> root;
+        private final BiFunction<Node<K, V>, List<R>, R> aggregator;
+        private final int threshold;
+
+        private Aggregate(Node<K, V> root, BiFunction<Node<K, V>, List<R>, R> aggregator, int threshold) {
+            this.root = root;
+            this.aggregator = aggregator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected R compute() {
+            if (weight(root) <= threshold) {
+                return root.aggregate(aggregator);
+            }
+            Deque<Frame<K, V, Slot<R>>> stack = new ArrayDeque<>();
+            stack.push(new Frame<>(root, threshold));
+            while (true) {
+                Frame<K, V, Slot<R>> frame = stack.peek();
+                if (frame.iterator.hasNext()) {
+                    Node<K, V> child = frame.iterator.next();
+                    if (weight(child) > threshold) {
+                        fork(frame.batch.take(), frame);
+                        stack.push(new Frame<>(child, threshold));
+                    } else {
+                        fork(frame.batch.add(child), frame);
+                    }
+                } else {
+                    stack.pop();
+                    fork(frame.batch.take(), frame);
+                    List<R> results = new ArrayList<>(frame.node.getChildCount());
+                    for (Slot<R> slot : frame.slots) {
+                        if (slot.task != null) {
+                            results.addAll(slot.task.join());
+                        } else {
+                            results.add(slot.result);
+                        }
+                    }
+                    R result = aggregator.apply(frame.node, results);
+                    if (stack.isEmpty()) {
+                        return result;
+                    }
+                    stack.peek().slots.add(new Slot<>(result, null));
+                }
+            }
+        }
+
+        private void fork(List<Node<K, V>> nodes, Frame<K, V, Slot<R>> frame) {
+            if (nodes != null) {
+                frame.slots.add(new Slot<>(null, new Results<>(nodes, aggregator).fork()));
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable tree node with the same ordering of children as {@link Node}.
+ * Updates copy only the path from the root to the changed node and share everything else,
+ * so a version of the tree is a snapshot that costs nothing to keep and an update costs O(depth),
+ * plus the copy of the sorted children of each node on the path.
+ */
+public final class PersistentNode<K extends Comparable<K>, V> {
+
+    private static final PersistentNode<?, ?>[] NO_CHILDREN = new PersistentNode<?, ?>[0];
+
+    private final K key;
+    private final V value;
+    private final Comparator<K> comparator;
+    private final PersistentNode<K, V>[] children;
+
+    /**
+     * Number of descendants
+     */
+    private final int size;
+
+    public PersistentNode() {
+        this(NullSafeComparator.getInstance());
+    }
+
+    public PersistentNode(Comparator<K> comparator) {
+        this(null, null, comparator);
+    }
+
+    public PersistentNode(K key) {
+        this(key, null, NullSafeComparator.getInstance());
+    }
+
+    public PersistentNode(K key, V value) {
+        this(key, value, NullSafeComparator.getInstance());
+    }
+
+    public PersistentNode(K key, V value, Comparator<K> comparator) {
+        this(key, value, comparator, newArray(0), 0);
+    }
+
+    private PersistentNode(K key, V value, Comparator<K> comparator, PersistentNode<K, V>[] children, int size) {
+        this.key = key;
+        this.value = value;
+        this.comparator = comparator;
+        this.children = children;
+        this.size = size;
+    }
+
+    /**
+     * @return an immutable copy of the tree rooted in the given node
+     */
+    public static <K extends Comparable<K>, V> PersistentNode<K, V> of(Node<K, V> node) {
+        return node.aggregate((n, copies) -> {
+            int size = 0;
+            for (PersistentNode<K, V> copy : copies) {
+                size += copy.size + 1;
+            }
+            return new PersistentNode<>(n.getKey(), n.getValue(), n.children().comparator,
+                    copies.toArray(newArray(copies.size())), size);
+        });
+    }
+
+    /**
+     * @return a mutable copy of this tree
+     */
+    public Node<K, V> toNode() {
+        Deque<Copy<K, V>> stack = new ArrayDeque<>();
+        stack.push(new Copy<>(this));
+        while (true) {
+            Copy<K, V> copy = stack.peek();
+            PersistentNode<K, V> source = copy.source;
+            if (copy.copies.size() < source.children.length) {
+                stack.push(new Copy<>(source.children[copy.copies.size()]));
+            } else {
+                stack.pop();
+                Node<K, V> node = new Node<>(source.key, source.value, source.comparator);
+                if (!copy.copies.isEmpty()) {
+                    node.putSorted(copy.copies);
+                }
+                if (stack.isEmpty()) {
+                    return node;
+                }
+                stack.peek().copies.add(node);
+            }
+        }
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public PersistentNode<K, V> getChild(K key) {
+        int index = indexOf(key);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * @return the descendant at the end of the path of keys, or null if there is none
+     */
+    public PersistentNode<K, V> getPath(List<K> path) {
+        PersistentNode<K, V> node = this;
+        for (int i = 0; i < path.size() && node != null; i++) {
+            node = node.getChild(path.get(i));
+        }
+        return node;
+    }
+
+    public List<PersistentNode<K, V>> getChildren() {
+        return Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    public int getChildCount() {
+        return children.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isLeaf() {
+        return children.length == 0;
+    }
+
+    /**
+     * Generic arrays cannot be created, the array is created with wildcards and only ever holds nodes with these
+     * type arguments; the empty one is shared since nothing is ever stored in it
+     */
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<K>, V> PersistentNode<K, V>[] newArray(int length) {
+        return (PersistentNode<K, V>[]) (length == 0 ? NO_CHILDREN : new PersistentNode<?, ?>[length]);
+    }
+
+    public PersistentNode<K, V> withValue(V value) {
+        return new PersistentNode<>(key, value, comparator, children, size);
+    }
+
+    /**
+     * @return a copy of this node with the child added, or replacing the one with the same key
+     */
+    public PersistentNode<K, V> put(PersistentNode<K, V> child) {
+        int index = indexOf(child.key);
+        PersistentNode<K, V>[] array;
+        int delta = child.size + 1;
+        if (index >= 0) {
+            if (children[index] == child) {
+                return this;
+            }
+            array = children.clone();
+            delta -= children[index].size + 1;
+            array[index] = child;
+        } else {
+            index = -index - 1;
+            array = newArray(children.length + 1);
+            System.arraycopy(children, 0, array, 0, index);
+            array[index] = child;
+            System.arraycopy(children, index, array, index + 1, children.length - index);
+        }
+        return new PersistentNode<>(key, value, comparator, array, size + delta);
+    }
+
+    /**
+     * @return a copy of this node without the child with the given key
+     */
+    public PersistentNode<K, V> remove(K key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return this;
+        }
+        PersistentNode<K, V>[] array = newArray(children.length - 1);
+        System.arraycopy(children, 0, array, 0, index);
+        System.arraycopy(children, index + 1, array, index, array.length - index);
+        return new PersistentNode<>(this.key, value, comparator, array, size - children[index].size - 1);
+    }
+
+    /**
+     * @return a new version of this tree with the value of the node at the end of the path, created if missing
+     */
+    public PersistentNode<K, V> put(List<K> path, V value) {
+        return update(path, node -> node != null ? node.withValue(value) : new PersistentNode<>(path.get(path.size() - 1), value, comparator));
+    }
+
+    /**
+     * @return a new version of this tree without the subtree at the end of the path
+     */
+    public PersistentNode<K, V> remove(List<K> path) {
+        return update(path, node -> null);
+    }
+
+    /**
+     * Replaces the node at the end of the path with the result of the function, copying its ancestors.
+     * The function gets null when the node is missing, and returns null to remove it;
+     * missing ancestors are created without a value.
+     *
+     * @return the new version of this tree
+     */
+    public PersistentNode<K, V> update(List<K> path, UnaryOperator<PersistentNode<K, V>> function) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Path cannot be empty");
+        }
+        List<PersistentNode<K, V>> ancestors = new ArrayList<>(path.size());
+        PersistentNode<K, V> node = this;
+        for (K k : path) {
+            ancestors.add(node);
+            node = node != null ? node.getChild(k) : null;
+        }
+        PersistentNode<K, V> updated = function.apply(node);
+        if (updated == node) {
+            return this;
+        }
+        K last = path.get(path.size() - 1);
+        if (updated != null && comparator.compare(updated.key, last) != 0) {
+            throw new IllegalArgumentException("Updated node key " + updated.key + " does not match " + last);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            PersistentNode<K, V> parent = ancestors.get(i);
+            if (parent == null) {
+                parent = new PersistentNode<>(path.get(i - 1), null, comparator);
+            }
+            updated = updated != null ? parent.put(updated) : parent.remove(path.get(i));
+        }
+        return updated;
+    }
+
+    private int indexOf(K key) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparator.compare(children[middle].key, key);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * A node being copied by {@link #toNode()}, with the copies of its children made so far
+     */
+    private static final class Copy<K extends Comparable<K>, V> {
+
+        private final PersistentNode<K, V> source;
+        private final List<Node<K, V>> copies;
+
+        private Copy(PersistentNode<K, V> source) {
+            this.source = source;
+            this.copies = new ArrayList<>(source.children.length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return key + (children.length == 0 ? "" : " -> " + Arrays.toString(children));
+    }
+}
@@ -0,0 +1,541 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The tree logic shared by {@link IntNode} and {@link LongNode}, which differ only in the type of the key.
+ * Children are kept sorted by key in an array, parallel to the primitive array of their keys held by the subclass;
+ * this class works on positions and leaves the keys to the few abstract methods below.
+ * The methods taking keys are declared by the subclasses with the primitive type, and come here with a lookup
+ * turning the keys into positions, so that no key is ever boxed.
+ */
+abstract class PrimitiveNode<N extends PrimitiveNode<N, V>, V> {
+
+    private V value;
+
+    N parent;
+
+    N[] children;
+
+    int count;
+
+    /**
+     * Number of descendants, kept up to date on every mutation
+     */
+    int size;
+
+    PrimitiveNode(V value, N[] children) {
+        this.value = value;
+        this.children = children;
+    }
+
+    /**
+     * @return the index of the key of the node among the children of this node if present,
+     * otherwise (-(insertion point) - 1)
+     */
+    abstract int indexOfKey(N node);
+
+    /**
+     * Resizes the array of keys to the given capacity
+     */
+    abstract void resizeKeys(int capacity);
+
+    /**
+     * Moves length keys from one position to another, as {@link System#arraycopy}
+     */
+    abstract void moveKeys(int from, int to, int length);
+
+    abstract void setKey(int index, N node);
+
+    /**
+     * Replaces the keys of this node with the ones of the original between from (inclusive) and to (exclusive)
+     */
+    abstract void copyKeys(N original, int from, int to);
+
+    abstract String keyString();
+
+    public abstract N cloneNode();
+
+    /**
+     * Turns the key at some depth of a primitive path into a position among the children of a node
+     */
+    interface PathKeys<N> {
+
+        /**
+         * @return the position of the key at the given depth of the path among the children of the node,
+         * or (-(insertion point) - 1) if there is no such child
+         */
+        int indexIn(N node, int depth);
+    }
+
+    @SuppressWarnings("unchecked")
+    private N self() {
+        return (N) this;
+    }
+
+    N put(int insertion, N child) {
+        if (count == children.length) {
+            int capacity = Math.max(4, count << 1);
+            resizeKeys(capacity);
+            children = Arrays.copyOf(children, capacity);
+        }
+        moveKeys(insertion, insertion + 1, count - insertion);
+        System.arraycopy(children, insertion, children, insertion + 1, count - insertion);
+        setKey(insertion, child);
+        children[insertion] = child;
+        count++;
+        child.parent = self();
+        resize(child.size + 1);
+        return child;
+    }
+
+    /**
+     * Same as {@link #put(int, PrimitiveNode)}, for a child that may still sit in the arrays of another parent:
+     * it is unlinked from there first, otherwise that parent and its ancestors would keep counting it
+     */
+    N move(int insertion, N child) {
+        N source = child.parent;
+        if (source != null) {
+            int index = source.indexOfKey(child);
+            if (index >= 0 && source.children[index] == child) {
+                source.removeAt(index);
+            }
+        }
+        return put(insertion, child);
+    }
+
+    private void resize(int delta) {
+        for (N node = self(); node != null; node = node.parent) {
+            node.size += delta;
+        }
+    }
+
+    N childAt(int index) {
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * Removes the child at the position found by a lookup, if there is one
+     */
+    N removeIndex(int index) {
+        if (index >= 0) {
+            removeAt(index);
+        }
+        return self();
+    }
+
+    N removeAt(int index) {
+        N child = children[index];
+        moveKeys(index + 1, index, count - index - 1);
+        System.arraycopy(children, index + 1, children, index, count - index - 1);
+        children[--count] = null;
+        child.parent = null;
+        resize(-(child.size + 1));
+        return child;
+    }
+
+    /**
+     * Inserts the child at its sorted position; when a child with the same key is already there,
+     * merges the subtree of the given child into it level by level instead
+     *
+     * @return the child now holding the key
+     */
+    public N add(N child) {
+        int index = indexOfKey(child);
+        if (index < 0) {
+            return move(-(index + 1), child);
+        }
+        N node = children[index];
+        if (node == child) {
+            return node;
+        }
+        Deque<N> targets = new ArrayDeque<>();
+        Deque<N> sources = new ArrayDeque<>();
+        targets.push(node);
+        sources.push(child);
+        while (!sources.isEmpty()) {
+            N target = targets.pop();
+            N source = sources.pop();
+            for (N c : Arrays.copyOf(source.children, source.count)) {
+                int position = target.indexOfKey(c);
+                if (position < 0) {
+                    target.move(-(position + 1), c);
+                } else {
+                    targets.push(target.children[position]);
+                    sources.push(c);
+                }
+            }
+        }
+        return node;
+    }
+
+    public N addTo(N parent) {
+        parent.add(self());
+        return parent;
+    }
+
+    public N merge(N root) {
+        for (N child : root.getChildrenList()) {
+            add(child);
+        }
+        return self();
+    }
+
+    public N remove(N child) {
+        return removeIndex(indexOfKey(child));
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public void setValue(V value) {
+        this.value = value;
+    }
+
+    public N getParent() {
+        return parent;
+    }
+
+    public N getRoot() {
+        N root = parent;
+        if (root != null) {
+            while (root.parent != null) {
+                root = root.parent;
+            }
+        }
+        return root;
+    }
+
+    public N getFirstChild() {
+        return count > 0 ? children[0] : null;
+    }
+
+    public List<N> getChildren() {
+        return Collections.unmodifiableList(Arrays.asList(children).subList(0, count));
+    }
+
+    public List<N> getChildrenList() {
+        return new ArrayList<>(getChildren());
+    }
+
+    public int getChildCount() {
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPosition() {
+        return parent != null ? parent.indexOfKey(self()) : 0;
+    }
+
+    public boolean isRoot() {
+        return parent == null;
+    }
+
+    public boolean isLeaf() {
+        return count == 0;
+    }
+
+    public List<N> getLeaves() {
+        List<N> leaves = new ArrayList<>();
+        traverseByDepthTopDown(node -> {
+            if (node.isLeaf()) {
+                leaves.add(node);
+            }
+        });
+        return leaves;
+    }
+
+    public void traverseByDepthTopDown(Consumer<N> consumer) {
+        Deque<N> stack = new ArrayDeque<>();
+        stack.push(self());
+        while (!stack.isEmpty()) {
+            N node = stack.pop();
+            consumer.accept(node);
+            for (int i = node.count - 1; i >= 0; i--) {
+                stack.push(node.children[i]);
+            }
+        }
+    }
+
+    public void traverseByDepthBottomUp(Consumer<N> consumer) {
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<int[]> indexes = new ArrayDeque<>();
+        nodes.push(self());
+        indexes.push(new int[1]);
+        while (!nodes.isEmpty()) {
+            N node = nodes.peek();
+            int[] index = indexes.peek();
+            if (index[0] < node.count) {
+                nodes.push(node.children[index[0]++]);
+                indexes.push(new int[1]);
+            } else {
+                nodes.pop();
+                indexes.pop();
+                consumer.accept(node);
+            }
+        }
+    }
+
+    /**
+     * Visits this node, then the descendants one sibling group at a time, each group before the groups of its members
+     */
+    public void traverseByBreadthTopDown(Consumer<N> consumer) {
+        consumer.accept(self());
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<int[]> indexes = new ArrayDeque<>();
+        nodes.push(self());
+        indexes.push(new int[1]);
+        acceptChildren(self(), consumer);
+        while (!nodes.isEmpty()) {
+            N node = nodes.peek();
+            int[] index = indexes.peek();
+            if (index[0] < node.count) {
+                N next = node.children[index[0]++];
+                acceptChildren(next, consumer);
+                nodes.push(next);
+                indexes.push(new int[1]);
+            } else {
+                nodes.pop();
+                indexes.pop();
+            }
+        }
+    }
+
+    /**
+     * Visits the descendants one sibling group at a time, each group after the groups of its members, then this node
+     */
+    public void traverseByBreadthBottomUp(Consumer<N> consumer) {
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<int[]> indexes = new ArrayDeque<>();
+        nodes.push(self());
+        indexes.push(new int[1]);
+        while (!nodes.isEmpty()) {
+            N node = nodes.peek();
+            int[] index = indexes.peek();
+            if (index[0] < node.count) {
+                nodes.push(node.children[index[0]++]);
+                indexes.push(new int[1]);
+            } else {
+                nodes.pop();
+                indexes.pop();
+                acceptChildren(node, consumer);
+            }
+        }
+        consumer.accept(self());
+    }
+
+    private static <N extends PrimitiveNode<N, V>, V> void acceptChildren(N node, Consumer<N> consumer) {
+        for (int i = 0; i < node.count; i++) {
+            consumer.accept(node.children[i]);
+        }
+    }
+
+    public N cloneTree() {
+        N root = cloneNode();
+        Deque<N> originals = new ArrayDeque<>();
+        Deque<N> clones = new ArrayDeque<>();
+        originals.push(self());
+        clones.push(root);
+        while (!originals.isEmpty()) {
+            N original = originals.pop();
+            N clone = clones.pop();
+            clone.share(original);
+            for (int i = 0; i < original.count; i++) {
+                N child = original.children[i].cloneNode();
+                child.parent = clone;
+                clone.children[i] = child;
+                originals.push(original.children[i]);
+                clones.push(child);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Makes this fresh clone point to the same children as the original, through its own copy of both arrays
+     */
+    void share(N original) {
+        copyKeys(original, 0, original.count);
+        children = Arrays.copyOf(original.children, original.count);
+        count = original.count;
+        size = original.size;
+    }
+
+    public N subTree(N from) {
+        return slice(lowerBound(from), count);
+    }
+
+    public N subTree(N from, N to) {
+        int index = indexOfKey(to);
+        return slice(lowerBound(from), index >= 0 ? index + 1 : -(index + 1));
+    }
+
+    public N subTree(int from, int size) {
+        from = Math.max(from, 0);
+        return slice(from, (int) Math.min((long) from + size, count));
+    }
+
+    private int lowerBound(N node) {
+        int index = indexOfKey(node);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    private N slice(int from, int to) {
+        N root = cloneNode();
+        if (from < to) {
+            root.copyKeys(self(), from, to);
+            root.children = Arrays.copyOfRange(children, from, to);
+            root.count = to - from;
+            for (int i = 0; i < root.count; i++) {
+                root.size += root.children[i].size + 1;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @return a clone of this node with the branches from this node to the descendants matching the predicate
+     */
+    public N filteredTree(Predicate<N> predicate) {
+        List<N> found = new ArrayList<>();
+        traverseByDepthTopDown(node -> {
+            if (node != this && predicate.test(node)) {
+                found.add(node);
+            }
+        });
+        return branches(found);
+    }
+
+    /**
+     * Clones the paths leading from this node down to the given descendants into one tree, in a single pass:
+     * an ancestor shared by several descendants is cloned the first time it is reached and reused after.
+     * Descendants must come after their ancestors in the list, and their clones share the children of the originals
+     * as in {@link #getBranch(PrimitiveNode)}.
+     */
+    N branches(List<N> nodes) {
+        N root = cloneNode();
+        Map<N, N> clones = new IdentityHashMap<>();
+        Set<N> complete = Collections.newSetFromMap(new IdentityHashMap<>());
+        clones.put(self(), root);
+        for (N node : nodes) {
+            N clone = node.cloneNode();
+            clone.share(node);
+            clones.put(node, clone);
+            complete.add(node);
+            N current = clone;
+            N parent = node.parent;
+            N parentClone;
+            while ((parentClone = clones.get(parent)) == null) {
+                parentClone = parent.cloneNode();
+                parentClone.put(0, current);
+                clones.put(parent, parentClone);
+                current = parentClone;
+                parent = parent.parent;
+            }
+            if (!complete.contains(parent)) {
+                parentClone.put(-(parentClone.indexOfKey(current) + 1), current);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @return the path from the root down to this node, cloned without the root, see {@link #getBranch(PrimitiveNode)}
+     */
+    public N getBranch() {
+        return getBranch(getRoot());
+    }
+
+    /**
+     * @return the path from the given ancestor down to this node, cloned without the ancestor;
+     * the clone of this node shares its children through a copy of the arrays, the other clones have one child each
+     */
+    public N getBranch(N ancestor) {
+        N root = cloneNode();
+        root.share(self());
+        for (N node = parent; node != null && node != ancestor; node = node.parent) {
+            N clone = node.cloneNode();
+            clone.put(0, root);
+            root = clone;
+        }
+        return root;
+    }
+
+    /**
+     * @return the node reached following the path, or null as soon as a key is missing
+     */
+    N walk(int length, PathKeys<N> keys) {
+        N node = self();
+        for (int depth = 0; depth < length && node != null; depth++) {
+            node = node.childAt(keys.indexIn(node, depth));
+        }
+        return node;
+    }
+
+    /**
+     * Follows the path as far as it exists, then creates the rest from the deepest node up,
+     * so that it is inserted into the tree at once and the sizes of the ancestors are updated once
+     *
+     * @param creator builds the detached node for the key at the given depth
+     * @return the node at the end of the path
+     */
+    N walkOrCreate(int length, PathKeys<N> keys, IntFunction<N> creator) {
+        N node = self();
+        int depth = 0;
+        for (N child; depth < length && (child = node.childAt(keys.indexIn(node, depth))) != null; depth++) {
+            node = child;
+        }
+        if (depth == length) {
+            return node;
+        }
+        N leaf = null;
+        N branch = null;
+        for (int i = length - 1; i >= depth; i--) {
+            N created = creator.apply(i);
+            if (branch == null) {
+                leaf = created;
+            } else {
+                created.put(0, branch);
+            }
+            branch = created;
+        }
+        node.put(-(keys.indexIn(node, depth) + 1), branch);
+        return leaf;
+    }
+
+    /**
+     * @param key the position of the key searched among the children of a node
+     * @return a tree cut down to the branches leading to every child found, at any depth below this node
+     */
+    N findChildren(ToIntFunction<N> key) {
+        List<N> found = new ArrayList<>();
+        traverseByDepthTopDown(parent -> {
+            N node = parent.childAt(key.applyAsInt(parent));
+            if (node != null) {
+                found.add(node);
+            }
+        });
+        return branches(found);
+    }
+
+    @Override
+    public String toString() {
+        return keyString() + (count == 0 ? "" : " -> " + getChildren());
+    }
+}
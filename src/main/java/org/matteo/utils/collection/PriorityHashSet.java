@@ -1,19 +1,154 @@
 package org.matteo.utils.collection;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Collector;
 
+/**
+ * A set that of equal elements keeps the one first in the order of the comparator.
+ * In ordered mode the elements are also kept in a tree sorted by the comparator, for {@link #first()},
+ * {@link #pollFirst()}, {@link #topK(int)} and ordered iteration; ties in the comparator are broken
+ * by the natural ordering, which then must be consistent with equals.
+ * The compact sets from {@link #compact(int, Comparator)} store each element once in a flat table.
+ * A bounded set holds at most its capacity, evicting an element for each new one once full
+ * and reporting it to the listener, see {@link Eviction}.
+ */
 public class PriorityHashSet<T extends Comparable<T>> implements Set<T> {
 
-    private final Map<T, T> map = new HashMap<>();
+    private final Map<T, T> map;
 
     private final Comparator<T> comparator;
 
+    private final NavigableSet<T> index;
+
+    /**
+     * Size of a collection below which parallelAddAll adds sequentially
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    public enum Eviction {
+        /**
+         * Evicts the element last in the order of the comparator, which may be the one just added
+         */
+        LOWEST_PRIORITY,
+        /**
+         * Evicts the element least recently added or looked up by an add of a duplicate
+         */
+        LRU,
+        /**
+         * Evicts the elements stored longer than the time to live, on each add,
+         * and the oldest one when full
+         */
+        TTL
+    }
+
+    private final int capacity;
+    private final Eviction eviction;
+    private final Consumer<? super T> listener;
+
+    private final long ttl;
+    private final LongSupplier clock;
+    private final Deque<Expiry<T>> expiries;
+
+    /**
+     * The latest expiry of each element, telling apart the stale ones in the deque
+     */
+    private final Map<T, Expiry<T>> expiring;
+
     public PriorityHashSet() {
-        this.comparator = Comparator.naturalOrder();
+        this(Comparator.naturalOrder());
     }
 
     public PriorityHashSet(Comparator<T> comparator) {
+        this(comparator, false);
+    }
+
+    public PriorityHashSet(boolean ordered) {
+        this(Comparator.naturalOrder(), ordered);
+    }
+
+    public PriorityHashSet(Comparator<T> comparator, boolean ordered) {
+        this(new HashMap<>(), comparator, ordered);
+    }
+
+    /**
+     * @param eviction LOWEST_PRIORITY or LRU, TTL needs a time to live
+     */
+    public PriorityHashSet(Comparator<T> comparator, int capacity, Eviction eviction, Consumer<? super T> listener) {
+        this(eviction == Eviction.LRU ? new LinkedHashMap<>(16, 0.75f, true) : new HashMap<>(), comparator,
+                eviction == Eviction.LOWEST_PRIORITY, capacity, eviction, listener, 0, System::nanoTime);
+        if (eviction == Eviction.TTL) {
+            throw new IllegalArgumentException("TTL eviction needs a time to live");
+        }
+    }
+
+    public PriorityHashSet(Comparator<T> comparator, int capacity, long ttl, TimeUnit unit, Consumer<? super T> listener) {
+        this(comparator, capacity, unit.toNanos(ttl), listener, System::nanoTime);
+    }
+
+    /**
+     * @param clock the time in nanoseconds
+     */
+    PriorityHashSet(Comparator<T> comparator, int capacity, long ttl, Consumer<? super T> listener, LongSupplier clock) {
+        this(new HashMap<>(), comparator, false, capacity, Eviction.TTL, listener, ttl, clock);
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive: " + ttl);
+        }
+    }
+
+    private PriorityHashSet(Map<T, T> map, Comparator<T> comparator, boolean ordered) {
+        this(map, comparator, ordered, Integer.MAX_VALUE, null, null, 0, null);
+    }
+
+    private PriorityHashSet(Map<T, T> map, Comparator<T> comparator, boolean ordered, int capacity, Eviction eviction,
+                            Consumer<? super T> listener, long ttl, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.map = map;
         this.comparator = comparator;
+        this.index = ordered ? new TreeSet<>(comparator.thenComparing(Comparator.naturalOrder())) : null;
+        this.capacity = capacity;
+        this.eviction = eviction;
+        this.listener = listener != null ? listener : t -> {
+        };
+        this.ttl = ttl;
+        this.clock = clock;
+        this.expiries = eviction == Eviction.TTL ? new ArrayDeque<>() : null;
+        this.expiring = eviction == Eviction.TTL ? new HashMap<>() : null;
+    }
+
+    public static <T extends Comparable<T>> PriorityHashSet<T> compact() {
+        return compact(0, Comparator.<T>naturalOrder());
+    }
+
+    public static <T extends Comparable<T>> PriorityHashSet<T> compact(Comparator<T> comparator) {
+        return compact(0, comparator);
+    }
+
+    /**
+     * @return an unordered set backed by an open-addressing table storing each element once,
+     * with room for the expected number of elements before it rehashes; null elements are not supported
+     */
+    public static <T extends Comparable<T>> PriorityHashSet<T> compact(int expectedSize, Comparator<T> comparator) {
+        return new PriorityHashSet<>(new FlatHashTable<>(expectedSize), comparator, false);
+    }
+
+    public boolean isOrdered() {
+        return index != null;
+    }
+
+    public boolean isBounded() {
+        return eviction != null;
+    }
+
+    private NavigableSet<T> index() {
+        if (index == null) {
+            throw new IllegalStateException("Not an ordered set");
+        }
+        return index;
     }
 
     @Override
@@ -31,34 +166,189 @@ public class PriorityHashSet<T extends Comparable<T>> implements Set<T> {
         return map.containsKey(o);
     }
 
+    /**
+     * @return an iterator in priority order when ordered, in hash order otherwise
+     */
     @Override
     public Iterator<T> iterator() {
-        return map.values().iterator();
+        if (index == null) {
+            return map.values().iterator();
+        }
+        Iterator<T> iterator = index.iterator();
+        return new Iterator<T>() {
+            private T last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return last = iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                map.remove(last);
+            }
+        };
     }
 
     @Override
     public Object[] toArray() {
-        return map.values().toArray();
+        return index != null ? index.toArray() : map.values().toArray();
     }
 
     @Override
     public <A> A[] toArray(A[] a) {
-        return map.values().toArray(a);
+        return index != null ? index.toArray(a) : map.values().toArray(a);
     }
 
+    /**
+     * @return false also when a bounded set evicts the element right away
+     */
     @Override
     public boolean add(T t) {
+        if (expiries != null) {
+            evictExpired();
+        }
         T existing = map.get(t);
         if (existing == null || comparator.compare(t, existing) < 0) {
             map.put(t, t);
-            return true;
+            if (index != null) {
+                if (existing != null) {
+                    index.remove(existing);
+                }
+                index.add(t);
+            }
+            if (expiries != null) {
+                Expiry<T> expiry = new Expiry<>(t, clock.getAsLong() + ttl);
+                expiries.add(expiry);
+                expiring.put(t, expiry);
+            }
+            return existing != null || map.size() <= capacity || evict() != t;
         }
         return false;
     }
 
     @Override
     public boolean remove(Object o) {
-        return map.remove(o) != null;
+        return removeElement(o) != null;
+    }
+
+    private T removeElement(Object o) {
+        T removed = map.remove(o);
+        if (removed != null && index != null) {
+            index.remove(removed);
+        }
+        if (removed != null && expiring != null) {
+            expiring.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Evicts an element according to the policy
+     *
+     * @return the element evicted, or null if there was none to evict
+     */
+    private T evict() {
+        T evicted;
+        switch (eviction) {
+            case LOWEST_PRIORITY:
+                evicted = index.last();
+                break;
+            case LRU:
+                evicted = map.values().iterator().next();
+                break;
+            default:
+                Expiry<T> expiry = pollExpiry();
+                if (expiry == null) {
+                    return null;
+                }
+                evicted = expiry.element;
+                break;
+        }
+        removeElement(evicted);
+        listener.accept(evicted);
+        return evicted;
+    }
+
+    /**
+     * @return the oldest expiry of an element still in the set, or null if there is none,
+     * dropping those of replaced or removed elements
+     */
+    private Expiry<T> pollExpiry() {
+        Expiry<T> expiry;
+        while ((expiry = expiries.poll()) != null && !isLive(expiry)) {
+            expiring.remove(expiry.element, expiry);
+        }
+        return expiry;
+    }
+
+    /**
+     * @return whether the expiry is the latest one of an element still in the set
+     */
+    private boolean isLive(Expiry<T> expiry) {
+        return expiring.get(expiry.element) == expiry && map.get(expiry.element) == expiry.element;
+    }
+
+    /**
+     * Evicts the elements stored longer than the time to live, done by every add on TTL sets
+     */
+    public void evictExpired() {
+        if (expiries == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Expiry<T> expiry;
+        while ((expiry = expiries.peek()) != null && expiry.time - now <= 0) {
+            expiries.poll();
+            if (isLive(expiry)) {
+                removeElement(expiry.element);
+                listener.accept(expiry.element);
+            } else {
+                expiring.remove(expiry.element, expiry);
+            }
+        }
+    }
+
+    /**
+     * @return the element first in priority order
+     * @throws NoSuchElementException if the set is empty
+     * @throws IllegalStateException if the set is not ordered
+     */
+    public T first() {
+        return index().first();
+    }
+
+    /**
+     * Removes the element first in priority order
+     *
+     * @return the element, or null if the set is empty
+     * @throws IllegalStateException if the set is not ordered
+     */
+    public T pollFirst() {
+        T first = index().pollFirst();
+        if (first != null) {
+            map.remove(first);
+        }
+        return first;
+    }
+
+    /**
+     * @return the first k elements in priority order
+     * @throws IllegalStateException if the set is not ordered
+     */
+    public List<T> topK(int k) {
+        List<T> top = new ArrayList<>(Math.min(k, size()));
+        Iterator<T> iterator = index().iterator();
+        while (top.size() < k && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
     }
 
     @Override
@@ -75,19 +365,97 @@ public class PriorityHashSet<T extends Comparable<T>> implements Set<T> {
         return changed;
     }
 
+    /**
+     * Adds the elements of the other set, already deduplicated: an empty unbounded set copies them in bulk,
+     * presizing its table, and a compact set is presized for both before adding them one by one
+     */
+    public boolean merge(PriorityHashSet<T> other) {
+        if (other.isEmpty()) {
+            return false;
+        }
+        if (map.isEmpty() && eviction == null) {
+            map.putAll(other.map);
+            if (index != null) {
+                index.addAll(other.map.values());
+            }
+            return true;
+        }
+        if (map instanceof FlatHashTable) {
+            ((FlatHashTable<T>) map).ensureCapacity(map.size() + other.size());
+        }
+        return addAll(other.map.values());
+    }
+
+    /**
+     * Adds large collections by deduplicating them into partial sets on the common fork-join pool,
+     * merged in pairs and at last into this set; bounded sets and small collections are added sequentially
+     */
+    public boolean parallelAddAll(Collection<? extends T> collection) {
+        if (eviction != null || collection.size() < PARALLEL_THRESHOLD) {
+            return addAll(collection);
+        }
+        return merge(collection.parallelStream().collect(toPriorityHashSet(comparator)));
+    }
+
+    public static <T extends Comparable<T>> Collector<T, ?, PriorityHashSet<T>> toPriorityHashSet() {
+        return toPriorityHashSet(Comparator.<T>naturalOrder());
+    }
+
+    /**
+     * @return a collector into unordered sets, merging the partial sets of parallel streams the smaller into the larger
+     */
+    public static <T extends Comparable<T>> Collector<T, ?, PriorityHashSet<T>> toPriorityHashSet(Comparator<T> comparator) {
+        return Collector.of(() -> new PriorityHashSet<>(comparator), PriorityHashSet::add, (s1, s2) -> {
+            if (s1.size() < s2.size()) {
+                s2.merge(s1);
+                return s2;
+            }
+            s1.merge(s2);
+            return s1;
+        }, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
     @Override
     public boolean retainAll(Collection<?> collection) {
-        return map.keySet().retainAll(collection);
+        return removeIf(t -> !collection.contains(t));
     }
 
+    /**
+     * Removes the elements one by one when the collection is smaller than this set, otherwise filters this set
+     */
     @Override
     public boolean removeAll(Collection<?> collection) {
-        return map.keySet().removeAll(collection);
+        if (collection.size() < size()) {
+            boolean changed = false;
+            for (Object o : collection) {
+                changed |= remove(o);
+            }
+            return changed;
+        }
+        return removeIf(collection::contains);
     }
 
     @Override
     public void clear() {
         map.clear();
+        if (index != null) {
+            index.clear();
+        }
+        if (expiries != null) {
+            expiries.clear();
+            expiring.clear();
+        }
+    }
+
+    private static final class Expiry<T> {
+
+        private final T element;
+        private final long time;
+
+        private Expiry(T element, long time) {
+            this.element = element;
+            this.time = time;
+        }
     }
 
 }
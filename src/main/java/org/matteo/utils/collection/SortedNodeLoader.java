@@ -0,0 +1,118 @@
+package org.matteo.utils.collection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds a {@link Node} tree from paths of keys sorted in lexicographic order, in a single streaming pass.
+ * Only the nodes along the last path are kept open: the children of a node are collected in order
+ * and stored at once when the input moves past it, with no lookup nor rebalancing per insert.
+ */
+public class SortedNodeLoader<K extends Comparable<K>, V> {
+
+    private final Node<K, V> root;
+    private final Comparator<K> comparator;
+
+    /**
+     * Nodes along the last path, the node at depth i + 1 at index i
+     */
+    private final List<Node<K, V>> open = new ArrayList<>();
+
+    /**
+     * Children collected so far, those of the root at index 0 and those of open node i at index i + 1
+     */
+    private final List<List<Node<K, V>>> pending = new ArrayList<>();
+
+    private boolean loaded;
+
+    public SortedNodeLoader() {
+        this(new Node<>());
+    }
+
+    public SortedNodeLoader(Comparator<K> comparator) {
+        this(new Node<>(comparator));
+    }
+
+    /**
+     * @param root the leaf that will get the loaded nodes; its comparator defines the expected order
+     */
+    public SortedNodeLoader(Node<K, V> root) {
+        if (!root.isLeaf()) {
+            throw new IllegalArgumentException("Root must be a leaf");
+        }
+        this.root = root;
+        this.comparator = root.children().comparator;
+        pending.add(new ArrayList<>());
+    }
+
+    public static <K extends Comparable<K>, V> Node<K, V> load(Iterable<? extends List<K>> paths) {
+        SortedNodeLoader<K, V> loader = new SortedNodeLoader<>();
+        for (List<K> path : paths) {
+            loader.add(path);
+        }
+        return loader.load();
+    }
+
+    public Node<K, V> add(List<K> path) {
+        return add(path, null);
+    }
+
+    /**
+     * Adds the path, which must not come before the previous one
+     *
+     * @param value the value of the last node of the path, set unless null
+     * @return the last node of the path
+     */
+    public Node<K, V> add(List<K> path, V value) {
+        if (loaded) {
+            throw new IllegalStateException("Tree already loaded");
+        }
+        int common = 0;
+        while (common < open.size() && common < path.size()) {
+            int cmp = comparator.compare(open.get(common).getKey(), path.get(common));
+            if (cmp > 0) {
+                throw new IllegalArgumentException("Path " + path + " is out of order");
+            } else if (cmp < 0) {
+                break;
+            }
+            common++;
+        }
+        if (common == path.size() && common < open.size()) {
+            throw new IllegalArgumentException("Path " + path + " is out of order");
+        }
+        close(common);
+        for (int i = common; i < path.size(); i++) {
+            Node<K, V> node = root.createNode(path.get(i), null);
+            pending.get(i).add(node);
+            open.add(node);
+            pending.add(new ArrayList<>());
+        }
+        Node<K, V> last = path.isEmpty() ? root : open.get(path.size() - 1);
+        if (value != null) {
+            last.setValue(value);
+        }
+        return last;
+    }
+
+    /**
+     * Stores the children of the open nodes deeper than the given depth
+     */
+    private void close(int depth) {
+        for (int i = open.size() - 1; i >= depth; i--) {
+            open.remove(i).putSorted(pending.remove(i + 1));
+        }
+    }
+
+    /**
+     * @return the root with all the paths added
+     */
+    public Node<K, V> load() {
+        if (!loaded) {
+            close(0);
+            root.putSorted(pending.remove(0));
+            loaded = true;
+        }
+        return root;
+    }
+}
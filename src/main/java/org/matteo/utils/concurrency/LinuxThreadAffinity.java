@@ -0,0 +1,63 @@
+package org.matteo.utils.concurrency;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pins threads using taskset on the native thread id read from /proc/thread-self.
+ * Failures are reported to the uncaught exception handler of the thread, which keeps running unpinned.
+ */
+public class LinuxThreadAffinity implements ThreadAffinity {
+
+    private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+
+    private final List<String> command;
+
+    public LinuxThreadAffinity() {
+        this("taskset", "-cp");
+    }
+
+    /**
+     * @param command the command to run, followed by the cpu and the thread id
+     */
+    LinuxThreadAffinity(String... command) {
+        this.command = Arrays.asList(command);
+    }
+
+    static boolean isSupported() {
+        return System.getProperty("os.name", "").toLowerCase().startsWith("linux") && Files.exists(THREAD_SELF);
+    }
+
+    @Override
+    public void pin(int cpu) {
+        try {
+            String tid = Files.readSymbolicLink(THREAD_SELF).getFileName().toString();
+            List<String> arguments = new ArrayList<>(command);
+            arguments.add(String.valueOf(cpu));
+            arguments.add(tid);
+            Process process = new ProcessBuilder(arguments)
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File("/dev/null"))
+                    .start();
+            int exit = process.waitFor();
+            if (exit != 0) {
+                report(new IllegalStateException("Unable to pin thread " + tid + " to cpu " + cpu + ", " + command.get(0) + " exited with " + exit));
+            }
+        } catch (IOException e) {
+            report(new IllegalStateException("Unable to pin thread to cpu " + cpu, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void report(Exception e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+}
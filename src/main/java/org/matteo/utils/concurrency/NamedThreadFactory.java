@@ -8,12 +8,78 @@ public class NamedThreadFactory implements ThreadFactory {
     private final String name;
     private final AtomicInteger counter = new AtomicInteger();
 
+    private Boolean daemon;
+    private Integer priority;
+    private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+    private ThreadGroup group;
+    private ThreadAffinity affinity = ThreadAffinity.NONE;
+    private int[] cpus;
+
     public NamedThreadFactory(String name) {
         this.name = name;
     }
 
+    public NamedThreadFactory daemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    public NamedThreadFactory priority(int priority) {
+        if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+            throw new IllegalArgumentException("Invalid priority " + priority);
+        }
+        this.priority = priority;
+        return this;
+    }
+
+    public NamedThreadFactory uncaughtExceptionHandler(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+        this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+        return this;
+    }
+
+    public NamedThreadFactory group(ThreadGroup group) {
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * Pins each new thread to one of the given cores, assigned round-robin, using the default affinity hook
+     */
+    public NamedThreadFactory pin(int... cpus) {
+        return pin(ThreadAffinity.getDefault(), cpus);
+    }
+
+    public NamedThreadFactory pin(ThreadAffinity affinity, int... cpus) {
+        if (cpus.length == 0) {
+            throw new IllegalArgumentException("At least a cpu is needed");
+        }
+        this.affinity = affinity;
+        this.cpus = cpus.clone();
+        return this;
+    }
+
     @Override
     public Thread newThread(final Runnable runnable) {
-        return new Thread(runnable, String.format("%s-%d", name, counter.incrementAndGet()));
+        final int id = counter.incrementAndGet();
+        Runnable target = runnable;
+        if (cpus != null) {
+            final ThreadAffinity threadAffinity = affinity;
+            final int cpu = cpus[(id - 1) % cpus.length];
+            target = () -> {
+                threadAffinity.pin(cpu);
+                runnable.run();
+            };
+        }
+        Thread thread = new Thread(group, target, String.format("%s-%d", name, id));
+        if (daemon != null) {
+            thread.setDaemon(daemon);
+        }
+        if (priority != null) {
+            thread.setPriority(priority);
+        }
+        if (uncaughtExceptionHandler != null) {
+            thread.setUncaughtExceptionHandler(uncaughtExceptionHandler);
+        }
+        return thread;
     }
 }
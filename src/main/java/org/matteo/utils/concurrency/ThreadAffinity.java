@@ -0,0 +1,23 @@
+package org.matteo.utils.concurrency;
+
+/**
+ * Hook to pin the current thread to a CPU core
+ */
+public interface ThreadAffinity {
+
+    ThreadAffinity NONE = cpu -> {
+    };
+
+    /**
+     * Pins the calling thread to the given core
+     */
+    void pin(int cpu);
+
+    /**
+     * @return the Linux implementation when running on Linux, otherwise a no-op
+     */
+    static ThreadAffinity getDefault() {
+        return LinuxThreadAffinity.isSupported() ? new LinuxThreadAffinity() : NONE;
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.matteo.utils.concurrency.dequeuer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks with an exponentially growing period while the queue is empty
+ */
+public class BackoffIdleStrategy implements IdleStrategy {
+
+    private static final long DEFAULT_SPINS = 100;
+    private static final long DEFAULT_YIELDS = 10;
+    private static final long DEFAULT_MIN_PARK = 1_000;
+    private static final long DEFAULT_MAX_PARK = 1_000_000;
+
+    private final long maxSpins;
+    private final long maxYields;
+    private final long minParkNanos;
+    private final long maxParkNanos;
+
+    public BackoffIdleStrategy() {
+        this(DEFAULT_SPINS, DEFAULT_YIELDS, DEFAULT_MIN_PARK, DEFAULT_MAX_PARK);
+    }
+
+    public BackoffIdleStrategy(long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+        if (maxSpins < 0 || maxYields < 0 || minParkNanos < 0 || maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException(String.format("Invalid backoff spins=%d yields=%d park=%d-%d", maxSpins, maxYields, minParkNanos, maxParkNanos));
+        }
+        this.maxSpins = maxSpins;
+        this.maxYields = maxYields;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+    }
+
+    @Override
+    public <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+        final long deadline = System.nanoTime() + BasicDequeuer.CLOCK;
+        long spins = 0;
+        long yields = 0;
+        long park = minParkNanos;
+        do {
+            T t = queue.poll();
+            if (t != null) {
+                return t;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (spins < maxSpins) {
+                spins++;
+            } else if (yields < maxYields) {
+                yields++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(park);
+                park = Math.min(park << 1, maxParkNanos);
+            }
+        } while (System.nanoTime() - deadline < 0);
+        return null;
+    }
+}
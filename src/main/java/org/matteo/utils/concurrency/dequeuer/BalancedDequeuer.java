@@ -22,7 +22,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BalancedDequeuer.class);
 
-    private final List<BalancedWorker> workers = new ArrayList<>();
+    private final List<BalancedWorker> balancedWorkers = new ArrayList<>();
 
     private int minWorkers;
     private int maxWorkers;
@@ -91,7 +91,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
 
     private void addWorker(Processor<T> processor) {
         BalancedWorker worker = new BalancedWorker(processor);
-        workers.add(worker);
+        balancedWorkers.add(worker);
     }
 
     @Override
@@ -136,7 +136,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
         setMaxThread(max);
         numWorkers = new AtomicInteger(initial);
         for (int i = 0; i < initial; i++) {
-            startWorker(workers.get(i));
+            startWorker(balancedWorkers.get(i));
         }
         scheduledExecutorService.schedule(analyser, profile.period * CLOCK, UNIT);
     }
@@ -145,7 +145,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
         try {
             final int num = numWorkers.get();
             if (num < maxWorkers) {
-                BalancedWorker worker = workers.get(numWorkers.getAndIncrement());
+                BalancedWorker worker = balancedWorkers.get(numWorkers.getAndIncrement());
                 startWorker(worker);
             }
         } catch (Exception e) {
@@ -155,7 +155,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
 
     private synchronized void decreaseWorkers() {
         if (numWorkers.get() > minWorkers) {
-            BalancedWorker worker = workers.get(numWorkers.decrementAndGet());
+            BalancedWorker worker = balancedWorkers.get(numWorkers.decrementAndGet());
             worker.shutdown();
         }
     }
@@ -202,7 +202,7 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
 
     private Collection<Long> analyse() {
         Collection<Long> results = new ArrayList<>();
-        for (BalancedWorker worker : workers) {
+        for (BalancedWorker worker : balancedWorkers) {
             if (worker.isObservable()) {
                 results.add(worker.getProcessed());
             }
@@ -276,18 +276,10 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
                 phaser.register();
                 synchronized (this) {
                     working = true;
-                    while (working) {
-                        T t = queue.poll(CLOCK, UNIT);
+                    while (working && !stopped) {
+                        T t = take();
                         if (t != null) {
-                            long begin = System.nanoTime();
-                            processor.process(t);
-                            long end = System.nanoTime();
-                            feed(1);
-                            long time = end - begin;
-                            averageWorkTime = averageWorkTime * profile.low + time * profile.high;
-                            if (completeAction != null) {
-                                completeAction.onComplete(t);
-                            }
+                            work(t);
                         } else if (shutdown) {
                             working = false;
                         } else {
@@ -304,6 +296,16 @@ public class BalancedDequeuer<T> extends BasicDequeuer<T> {
             }
         }
 
+        @Override
+        void process(T t) throws Exception {
+            long begin = System.nanoTime();
+            processor.process(t);
+            long end = System.nanoTime();
+            feed(1);
+            long time = end - begin;
+            averageWorkTime = averageWorkTime * profile.low + time * profile.high;
+        }
+
         private void feed(long delta) {
             ctr.addAndGet(delta);
             observable = true;
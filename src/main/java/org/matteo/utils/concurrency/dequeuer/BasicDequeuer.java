@@ -4,10 +4,13 @@ import org.matteo.utils.concurrency.Async;
 import org.matteo.utils.concurrency.exception.ExceptionHandler;
 import org.matteo.utils.concurrency.NamedThreadFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Created with IntelliJ IDEA.
@@ -27,13 +30,27 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
 
     final List<Processor<T>> processors = new ArrayList<>();
 
+    final Collection<Worker> workers = new ConcurrentLinkedQueue<>();
+
     private final Collection<T> unprocessed = new ArrayList<>();
 
+    /**
+     * Items handed to the queue, every one of them is then queued, in flight, processed, failed or unprocessed
+     */
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final ConcurrentMap<Identity, Deque<CompletableFuture<T>>> pending = new ConcurrentHashMap<>();
+    private volatile TerminationReport<T> report;
+
     volatile boolean shutdown;
+    volatile boolean stopped;
     private volatile boolean terminated;
 
     CompleteAction<T> completeAction;
 
+    volatile IdleStrategy idleStrategy = IdleStrategy.BLOCKING;
+
     ExceptionHandler exceptionHandler = new ExceptionHandler();
 
     public BasicDequeuer(Processor<T> processor) {
@@ -45,7 +62,11 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
     }
 
     public BasicDequeuer(Processor<T> processor, boolean synchronous, int threads) {
-        this(synchronous);
+        this(processor, synchronous, threads, new NamedThreadFactory("BasicDequeuer"));
+    }
+
+    public BasicDequeuer(Processor<T> processor, boolean synchronous, int threads, ThreadFactory threadFactory) {
+        this(synchronous, threadFactory);
         processors.add(processor);
         for (int i = 0; i < threads; i++) {
             Worker worker = createWorker(processor);
@@ -63,8 +84,12 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
     }
 
     BasicDequeuer(boolean synchronous) {
+        this(synchronous, new NamedThreadFactory("BasicDequeuer"));
+    }
+
+    BasicDequeuer(boolean synchronous, ThreadFactory threadFactory) {
         this.name = "BasicDequeuer";
-        service = Executors.newCachedThreadPool(new NamedThreadFactory(name));
+        service = Executors.newCachedThreadPool(threadFactory);
         queue = getQueue(synchronous);
         exceptionHandler.register(this);
         phaser.register();
@@ -89,12 +114,23 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
 
     @Override
     public synchronized void shutdownNow() {
+        abort();
+    }
+
+    /**
+     * Stops the workers from taking items, moves the queue to the unprocessed items and terminates,
+     * then interrupts the items in flight, already in the report
+     */
+    private synchronized void abort() {
         try {
             shutdown = true;
-            queue.drainTo(unprocessed);
-            service.shutdownNow();
-        } finally {
+            stopped = true;
+            synchronized (unprocessed) {
+                queue.drainTo(unprocessed);
+            }
             terminate();
+        } finally {
+            service.shutdownNow();
         }
     }
 
@@ -126,6 +162,55 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
         return unprocessed;
     }
 
+    @Override
+    public TerminationReport<T> getTerminationReport() {
+        TerminationReport<T> terminationReport = report;
+        return terminationReport != null ? terminationReport : createReport();
+    }
+
+    /**
+     * Takes the snapshot without stopping the workers: it is retried while a worker hands an item off during the snapshot
+     * or while an item is between the queue and a worker, so that every accepted item is accounted exactly once.
+     * Gives up after a clock, which only a descheduled thread in the middle of a handoff can cause.
+     */
+    private TerminationReport<T> createReport() {
+        long deadline = System.nanoTime() + CLOCK;
+        while (true) {
+            long before = accepted.sum();
+            long handoffs = handoffs();
+            Collection<T> inFlight = new ArrayList<>();
+            for (Worker worker : workers) {
+                T t = worker.current;
+                if (t != null) {
+                    inFlight.add(t);
+                }
+            }
+            Collection<T> waiting;
+            synchronized (unprocessed) {
+                waiting = new ArrayList<>(unprocessed);
+            }
+            waiting.addAll(queue);
+            long done = processed.sum();
+            long lost = failed.sum();
+            boolean stable = handoffs() == handoffs && accepted.sum() == before;
+            if ((stable && before == done + lost + inFlight.size() + waiting.size()) || System.nanoTime() - deadline >= 0) {
+                return new TerminationReport<>(done, lost, inFlight, waiting);
+            }
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Workers are never removed, so the total only grows
+     */
+    private long handoffs() {
+        long handoffs = 0;
+        for (Worker worker : workers) {
+            handoffs += worker.handoffs;
+        }
+        return handoffs;
+    }
+
     @Override
     public boolean isTerminated() {
         return terminated;
@@ -138,15 +223,79 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
                 throw new RejectedObjectException("Queue has been shutdown or an exception occurred");
             }
         } while (!queue.offer(t, CLOCK, UNIT));
+        accepted.increment();
+    }
+
+    @Override
+    public Future<T> submit(T t) throws RejectedObjectException, InterruptedException {
+        CompletableFuture<T> future = track(t);
+        try {
+            enqueue(t);
+        } catch (RejectedObjectException | InterruptedException e) {
+            untrack(t);
+            throw e;
+        }
+        return future;
+    }
+
+    CompletableFuture<T> track(T t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pending.compute(new Identity(t), (k, futures) -> {
+            if (futures == null) {
+                futures = new ArrayDeque<>(1);
+            }
+            futures.add(future);
+            return futures;
+        });
+        return future;
+    }
+
+    CompletableFuture<T> untrack(T t) {
+        final List<CompletableFuture<T>> removed = new ArrayList<>(1);
+        pending.computeIfPresent(new Identity(t), (k, futures) -> {
+            removed.add(futures.poll());
+            return futures.isEmpty() ? null : futures;
+        });
+        return removed.isEmpty() ? null : removed.get(0);
+    }
+
+    private void complete(T t, Exception e) {
+        if (!pending.isEmpty()) {
+            CompletableFuture<T> future = untrack(t);
+            if (future != null) {
+                if (e == null) {
+                    future.complete(t);
+                } else {
+                    future.completeExceptionally(e);
+                }
+            }
+        }
     }
 
     protected synchronized void terminate() {
         if (!terminated) {
+            report = createReport();
             terminated = true;
             exceptionHandler.remove(this);
+            for (Identity identity : pending.keySet()) {
+                Deque<CompletableFuture<T>> futures = pending.remove(identity);
+                if (futures != null) {
+                    for (CompletableFuture<T> future : futures) {
+                        future.cancel(false);
+                    }
+                }
+            }
         }
     }
 
+    public IdleStrategy getIdleStrategy() {
+        return idleStrategy;
+    }
+
+    public void setIdleStrategy(IdleStrategy idleStrategy) {
+        this.idleStrategy = idleStrategy;
+    }
+
     void setCompleteAction(CompleteAction<T> completeAction) {
         this.completeAction = completeAction;
     }
@@ -169,8 +318,65 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
 
         final Processor<T> processor;
 
+        volatile T current;
+
+        /**
+         * Bumped after every change of current and of the counters, written only by this worker
+         */
+        volatile long handoffs;
+
         Worker(Processor<T> processor) {
             this.processor = processor;
+            workers.add(this);
+        }
+
+        /**
+         * Takes the next item and publishes it as current right away for the reports,
+         * once stopped the item is left unprocessed
+         *
+         * @return the item, or null if none arrived within a clock or the dequeuer has been stopped
+         */
+        T take() throws InterruptedException {
+            T t = idleStrategy.poll(queue);
+            if (t == null) {
+                return null;
+            }
+            if (stopped) {
+                synchronized (unprocessed) {
+                    unprocessed.add(t);
+                }
+                t = null;
+            } else {
+                current = t;
+            }
+            handoffs++;
+            return t;
+        }
+
+        /**
+         * Processes the item already published as current by {@link #take()}
+         */
+        void work(T t) throws Exception {
+            try {
+                process(t);
+                if (completeAction != null) {
+                    completeAction.onComplete(t);
+                }
+            } catch (Exception e) {
+                current = null;
+                failed.increment();
+                handoffs++;
+                complete(t, e);
+                throw e;
+            }
+            current = null;
+            processed.increment();
+            handoffs++;
+            complete(t, null);
+        }
+
+        void process(T t) throws Exception {
+            processor.process(t);
         }
 
         @Override
@@ -179,13 +385,10 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
                 phaser.register();
                 synchronized (this) {
                     boolean working = true;
-                    while (working) {
-                        T t = queue.poll(CLOCK, UNIT);
+                    while (working && !stopped) {
+                        T t = take();
                         if (t != null) {
-                            processor.process(t);
-                            if (completeAction != null) {
-                                completeAction.onComplete(t);
-                            }
+                            work(t);
                         } else if (shutdown) {
                             working = false;
                         }
@@ -200,4 +403,23 @@ public class BasicDequeuer<T> implements Dequeuer<T> {
             }
         }
     }
+
+    private static final class Identity {
+
+        private final Object object;
+
+        private Identity(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Identity && ((Identity) o).object == object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
 }
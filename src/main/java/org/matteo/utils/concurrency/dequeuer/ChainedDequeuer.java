@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -17,9 +19,20 @@ public class ChainedDequeuer<T> implements Dequeuer<T> {
 
     private final LinkedList<Dequeuer<T>> chain = new LinkedList<>();
 
-    private final ExceptionHandler exceptionHandler = new ExceptionHandler();
+    private final BasicDequeuer<T> last;
+
+    private final ExceptionHandler exceptionHandler;
 
     public ChainedDequeuer(Collection<BasicDequeuer<T>> dequeuers) {
+        this(dequeuers, new ExceptionHandler());
+    }
+
+    /**
+     * Creates a chain using the given handler, typically a child scope of a handler shared among several chains
+     * so that a failure in this chain shuts down only this chain
+     */
+    public ChainedDequeuer(Collection<BasicDequeuer<T>> dequeuers, ExceptionHandler exceptionHandler) {
+        this.exceptionHandler = exceptionHandler;
         if (dequeuers.isEmpty()) {
             throw new IllegalArgumentException("An empty chained dequeuer doesn't make sense");
         }
@@ -34,6 +47,7 @@ public class ChainedDequeuer<T> implements Dequeuer<T> {
             }
             previous = next;
         }
+        last = previous;
     }
 
     @Override
@@ -53,8 +67,12 @@ public class ChainedDequeuer<T> implements Dequeuer<T> {
     @Override
     public boolean awaitTermination(long time, TimeUnit unit) throws Exception {
         boolean elapsed = false;
-        for (Dequeuer<T> dequeuer : chain) {
-            elapsed |= dequeuer.awaitTermination(time, unit);
+        try {
+            for (Dequeuer<T> dequeuer : chain) {
+                elapsed |= dequeuer.awaitTermination(time, unit);
+            }
+        } finally {
+            exceptionHandler.detach();
         }
         return elapsed;
     }
@@ -66,6 +84,20 @@ public class ChainedDequeuer<T> implements Dequeuer<T> {
         return unprocessed;
     }
 
+    @Override
+    public TerminationReport<T> getTerminationReport() {
+        final Collection<T> inFlight = new ArrayList<>();
+        final Collection<T> unprocessed = new ArrayList<>();
+        long failed = 0;
+        for (Dequeuer<T> dequeuer : chain) {
+            TerminationReport<T> report = dequeuer.getTerminationReport();
+            failed += report.getFailed();
+            inFlight.addAll(report.getInFlight());
+            unprocessed.addAll(report.getUnprocessed());
+        }
+        return new TerminationReport<>(last.getTerminationReport().getProcessed(), failed, inFlight, unprocessed);
+    }
+
     @Override
     public boolean isTerminated() {
         boolean terminated = true;
@@ -80,6 +112,18 @@ public class ChainedDequeuer<T> implements Dequeuer<T> {
         chain.getFirst().enqueue(t);
     }
 
+    @Override
+    public Future<T> submit(T t) throws RejectedObjectException, InterruptedException {
+        CompletableFuture<T> future = last.track(t);
+        try {
+            enqueue(t);
+        } catch (RejectedObjectException | InterruptedException e) {
+            last.untrack(t);
+            throw e;
+        }
+        return future;
+    }
+
     @Override
     public ExceptionHandler getExceptionHandler() {
         return exceptionHandler;
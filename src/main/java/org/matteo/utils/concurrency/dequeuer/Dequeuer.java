@@ -4,18 +4,30 @@ import org.matteo.utils.concurrency.exception.ExceptionHandler;
 import org.matteo.utils.concurrency.exception.ShutdownAction;
 
 import java.util.Collection;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public interface Dequeuer<T> extends ShutdownAction {
 
     void enqueue(T t) throws RejectedObjectException, InterruptedException;
 
+    /**
+     * Enqueues the item and returns a future completed once the item has been fully processed,
+     * the future is cancelled if the dequeuer terminates before processing it
+     */
+    Future<T> submit(T t) throws RejectedObjectException, InterruptedException;
+
     void shutdown();
 
     boolean awaitTermination(long time, TimeUnit unit) throws Exception;
 
     Collection<T> getUnprocessed();
 
+    /**
+     * @return the report frozen at termination, or a live snapshot while still running
+     */
+    TerminationReport<T> getTerminationReport();
+
     boolean isTerminated();
 
     ExceptionHandler getExceptionHandler();
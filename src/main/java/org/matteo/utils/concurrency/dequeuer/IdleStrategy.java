@@ -0,0 +1,28 @@
+package org.matteo.utils.concurrency.dequeuer;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Defines how an idle worker waits for the next item.
+ * Implementations return null after roughly one clock so that the worker can check for shutdown.
+ */
+public interface IdleStrategy {
+
+    /**
+     * Parks the thread in the queue, the default
+     */
+    IdleStrategy BLOCKING = new IdleStrategy() {
+        @Override
+        public <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+            return queue.poll(BasicDequeuer.CLOCK, BasicDequeuer.UNIT);
+        }
+    };
+
+    /**
+     * Never gives up the core, to be used only with dedicated cores
+     */
+    IdleStrategy BUSY_SPIN = new BackoffIdleStrategy(Long.MAX_VALUE, 0, 0, 0);
+
+    <T> T poll(BlockingQueue<T> queue) throws InterruptedException;
+
+}
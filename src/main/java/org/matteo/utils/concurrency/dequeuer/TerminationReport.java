@@ -0,0 +1,52 @@
+package org.matteo.utils.concurrency.dequeuer;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Snapshot of the work done by a dequeuer: items fully processed, items whose processing threw,
+ * items inside a processor and items never taken
+ */
+public class TerminationReport<T> {
+
+    private final long processed;
+    private final long failed;
+    private final Collection<T> inFlight;
+    private final Collection<T> unprocessed;
+
+    public TerminationReport(long processed, long failed, Collection<T> inFlight, Collection<T> unprocessed) {
+        this.processed = processed;
+        this.failed = failed;
+        this.inFlight = Collections.unmodifiableCollection(inFlight);
+        this.unprocessed = Collections.unmodifiableCollection(unprocessed);
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * @return the number of items whose processor or complete action threw an exception
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public Collection<T> getInFlight() {
+        return inFlight;
+    }
+
+    public Collection<T> getUnprocessed() {
+        return unprocessed;
+    }
+
+    @Override
+    public String toString() {
+        return "TerminationReport{" +
+                "processed=" + processed +
+                ", failed=" + failed +
+                ", inFlight=" + inFlight.size() +
+                ", unprocessed=" + unprocessed.size() +
+                '}';
+    }
+}
@@ -6,9 +6,14 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.Future;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created with IntelliJ IDEA.
@@ -19,53 +24,151 @@ public class ExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ExceptionHandler.class);
 
-    private Exception exception;
-    private Future halt;
+    private final AtomicReference<Failure> failure = new AtomicReference<>();
 
-    private final Collection<ExceptionListener> listeners = new ArrayList<>();
-    private final Map<Object, ShutdownAction> shutdownActions = new LinkedHashMap<>();
+    private final Collection<ExceptionListener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<Object, Registration> shutdownActions = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
 
-    public synchronized void handle(Exception e) {
-        if (exception == null) {
-            this.exception = e;
+    private final ExceptionHandler parent;
+    private final boolean escalate;
+
+    public ExceptionHandler() {
+        this(null, false);
+    }
+
+    private ExceptionHandler(ExceptionHandler parent, boolean escalate) {
+        this.parent = parent;
+        this.escalate = escalate;
+        if (parent != null) {
+            parent.register(this, () -> cascade(parent.getException()));
+        }
+    }
+
+    /**
+     * Creates a child scope: an exception in the child shuts down only the actions registered in the child,
+     * while an exception in this handler shuts down the child as well
+     */
+    public ExceptionHandler createChild() {
+        return createChild(false);
+    }
+
+    /**
+     * Creates a child scope, if escalate is true an exception in the child is also propagated to this handler
+     */
+    public ExceptionHandler createChild(boolean escalate) {
+        return new ExceptionHandler(this, escalate);
+    }
+
+    public void handle(Exception e) {
+        final FutureTask<Void> halt = fail(e);
+        if (halt != null) {
             logger.error("An error occurred, shutting down NOW", e);
-            final Collection<ShutdownAction> actions = new ArrayList<>(shutdownActions.values());
-            halt = Async.run(() -> {
+            Async.run(halt, "ExceptionHandler");
+            if (escalate) {
+                parent.handle(e);
+            }
+        } else {
+            logger.warn("Received exception but another exception was already caught", e);
+        }
+    }
+
+    private void cascade(Exception e) {
+        final FutureTask<Void> halt = fail(e);
+        if (halt != null) {
+            halt.run();
+        }
+    }
+
+    private FutureTask<Void> fail(Exception e) {
+        if (failure.get() == null) {
+            final Collection<ShutdownAction> actions = getShutdownActions();
+            final FutureTask<Void> halt = new FutureTask<>(() -> {
                 for (ExceptionListener listener : listeners) {
                     listener.onException(e);
                 }
                 for (ShutdownAction shutdownAction : actions) {
                     shutdownAction.shutdownNow();
                 }
-            }, "ExceptionHandler");
-        } else {
-            logger.warn("Received exception but another exception was already caught", e);
+            }, null);
+            if (failure.compareAndSet(null, new Failure(e, halt))) {
+                return halt;
+            }
         }
+        return null;
     }
 
-    public synchronized void register(Object object, ShutdownAction action) {
-        shutdownActions.put(object, action);
+    public void register(Object object, ShutdownAction action) {
+        shutdownActions.compute(object, (k, registration) ->
+                new Registration(registration != null ? registration.order : sequence.incrementAndGet(), action));
     }
 
-    public synchronized void register(ShutdownAction shutdownAction) {
-        shutdownActions.put(shutdownAction, shutdownAction);
+    public void register(ShutdownAction shutdownAction) {
+        register(shutdownAction, shutdownAction);
     }
 
-    public synchronized void register(ExceptionListener listener) {
+    public void register(ExceptionListener listener) {
         listeners.add(listener);
     }
 
-    public synchronized void remove(Object object) {
+    public void remove(Object object) {
         shutdownActions.remove(object);
     }
 
+    /**
+     * Detaches this scope from its parent, to be called when the sub-pipeline has completed
+     */
+    public void detach() {
+        if (parent != null) {
+            parent.remove(this);
+        }
+    }
+
+    public ExceptionHandler getParent() {
+        return parent;
+    }
+
     public Exception getException() {
-        return exception;
+        Failure f = failure.get();
+        return f != null ? f.exception : null;
     }
 
     public void waitForShutdown() throws Exception {
-        if (halt != null) {
-            halt.get();
+        Failure f = failure.get();
+        if (f != null) {
+            f.halt.get();
+        }
+    }
+
+    private Collection<ShutdownAction> getShutdownActions() {
+        List<Registration> registrations = new ArrayList<>(shutdownActions.values());
+        registrations.sort(Comparator.comparingLong(r -> r.order));
+        Collection<ShutdownAction> actions = new ArrayList<>(registrations.size());
+        for (Registration registration : registrations) {
+            actions.add(registration.action);
+        }
+        return actions;
+    }
+
+    private static class Registration {
+
+        private final long order;
+        private final ShutdownAction action;
+
+        private Registration(long order, ShutdownAction action) {
+            this.order = order;
+            this.action = action;
+        }
+    }
+
+    private static class Failure {
+
+        private final Exception exception;
+        private final FutureTask<Void> halt;
+
+        private Failure(Exception exception, FutureTask<Void> halt) {
+            this.exception = exception;
+            this.halt = halt;
         }
     }
 }
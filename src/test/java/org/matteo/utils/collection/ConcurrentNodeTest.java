@@ -0,0 +1,82 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentNodeTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void testParallelAdd() throws Exception {
+        Node<Integer, String> expected = new Node<>();
+        ConcurrentNode<Integer, String> root = new ConcurrentNode<>();
+        List<List<int[]>> rows = new ArrayList<>();
+        Random random = new Random(0);
+        for (int t = 0; t < THREADS; t++) {
+            List<int[]> paths = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                int[] path = {random.nextInt(10), random.nextInt(20), random.nextInt(50)};
+                paths.add(path);
+                expected.add(new Node<>(path[0])).add(new Node<>(path[1])).add(new Node<>(path[2]));
+            }
+            rows.add(paths);
+        }
+        ExecutorService service = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<int[]> paths : rows) {
+                futures.add(service.submit(() -> {
+                    for (int[] path : paths) {
+                        ConcurrentNode<Integer, String> leaf = root.addIfAbsent(path[0]).addIfAbsent(path[1]).addIfAbsent(path[2]);
+                        assertSame(leaf, root.getChild(path[0]).getChild(path[1]).getChild(path[2]));
+                        assertSame(root, leaf.getParent().getParent().getParent());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            service.shutdown();
+        }
+        assertEquals(expected.size(), root.size());
+        Node<Integer, String> node = root.toNode();
+        assertEquals(expected.toString(), node.toString());
+        assertEquals(expected.size(), node.size());
+    }
+
+    @Test
+    void testAddAndMerge() {
+        ConcurrentNode<String, Integer> root = new ConcurrentNode<>();
+        ConcurrentNode<String, Integer> a = root.addIfAbsent("A", 1);
+        assertSame(a, root.addIfAbsent("A", 2));
+        assertEquals(1, (int) a.getValue());
+        assertSame(root, a.getParent());
+
+        ConcurrentNode<String, Integer> other = new ConcurrentNode<>("A");
+        other.addIfAbsent("B").addIfAbsent("C");
+        assertSame(a, root.add(other));
+        assertNotNull(a.getChild("B").getChild("C"));
+
+        Node<String, Integer> tree = new Node<>();
+        tree.add(new Node<>("A")).add(new Node<>("D", 4));
+        tree.add(new Node<>("E"));
+        root.merge(tree);
+        assertEquals("null -> [A -> [B -> [C], D], E]", root.toString());
+        assertEquals(4, (int) a.getChild("D").getValue());
+        assertEquals(5, root.size());
+
+        root.remove("A");
+        assertNull(a.getParent());
+        assertEquals(1, root.size());
+    }
+}
@@ -0,0 +1,75 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+import org.matteo.utils.collection.PriorityHashSetTest.Mock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentPriorityHashSetTest {
+
+    @Test
+    void testAdd() {
+        ConcurrentPriorityHashSet<Mock> set = new ConcurrentPriorityHashSet<>();
+        assertTrue(set.add(new Mock("ID1", 10)));
+        Mock best = new Mock("ID1", 8);
+        assertTrue(set.add(best));
+        assertFalse(set.add(new Mock("ID1", 9)));
+        assertFalse(set.add(best));
+        assertEquals(1, set.size());
+        assertSame(best, set.iterator().next());
+        assertTrue(set.remove(new Mock("ID1", 0)));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    void testConcurrentAdd() throws Exception {
+        int threads = 8;
+        List<List<Mock>> batches = new ArrayList<>();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < threads; i++) {
+            List<Mock> batch = new ArrayList<>();
+            for (int j = 0; j < 20000; j++) {
+                Mock mock = new Mock("ID" + random.nextInt(1000), random.nextInt(100000));
+                batch.add(mock);
+                expected.merge(mock.getId(), mock.getPriority(), Math::min);
+            }
+            batches.add(batch);
+        }
+        ConcurrentPriorityHashSet<Mock> set = new ConcurrentPriorityHashSet<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<Mock> batch : batches) {
+                futures.add(executor.submit(() -> batch.forEach(set::add)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(expected.size(), set.size());
+        for (Mock mock : set) {
+            assertEquals(expected.get(mock.getId()).intValue(), mock.getPriority());
+        }
+
+        ConcurrentPriorityHashSet<Mock> bulk = new ConcurrentPriorityHashSet<>();
+        List<Mock> all = new ArrayList<>();
+        batches.forEach(all::addAll);
+        assertTrue(bulk.addAll(all));
+        assertEquals(expected.size(), bulk.size());
+        for (Mock mock : bulk) {
+            assertEquals(expected.get(mock.getId()).intValue(), mock.getPriority());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdentityNodeTest {
+
+    @Test
+    void testEquals() {
+        Node<String, String> root = new IdentityNode<>();
+        Node<String, String> child = root.add(new IdentityNode<>("A"));
+        Node<String, String> same = new IdentityNode<>("A");
+        assertEquals(child, child);
+        assertNotEquals(child, same);
+        Set<Node<String, String>> set = new HashSet<>();
+        set.add(child);
+        set.add(same);
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void testCloneKeepsType() {
+        Node<String, String> root = new IdentityNode<>();
+        root.add(new IdentityNode<>("A")).add(new IdentityNode<>("B"));
+        Node<String, String> clone = root.cloneTree();
+        assertTrue(clone instanceof IdentityNode);
+        assertTrue(clone.getChild("A").getChild("B") instanceof IdentityNode);
+        Node<String, String> found = root.find("B");
+        assertTrue(found instanceof IdentityNode);
+        assertEquals(2, found.size());
+        Node<String, String> leaf = root.computeIfAbsentPath(Arrays.asList("A", "C", "D"));
+        assertTrue(leaf instanceof IdentityNode);
+        assertTrue(root.getPath("A", "C") instanceof IdentityNode);
+    }
+
+    @Test
+    void testDeepBranch() {
+        final int depth = 5000;
+        Node<Integer, String> root = new IdentityNode<>();
+        Node<Integer, String> node = root;
+        for (int i = 0; i < depth; i++) {
+            node = node.add(new IdentityNode<>(i % 2));
+        }
+        assertEquals(depth, root.size());
+        Node<Integer, String> branch = node.getBranch();
+        assertEquals(depth - 1, branch.size());
+    }
+}
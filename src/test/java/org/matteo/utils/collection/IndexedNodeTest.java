@@ -0,0 +1,99 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedNodeTest {
+
+    private static void fill(Node<Integer, String> root, Random random, int rows) {
+        for (int i = 0; i < rows; i++) {
+            Node<Integer, String> branch = new Node<>(random.nextInt(4));
+            branch.add(new Node<>(random.nextInt(8))).add(new Node<>(random.nextInt(16))).add(new Node<>(random.nextInt(32)));
+            root.add(branch);
+        }
+    }
+
+    private static void assertSameFind(Node<Integer, String> expected, Node<Integer, String> actual) {
+        for (int key = 0; key < 32; key++) {
+            assertEquals(expected.find(key).toString(), actual.find(key).toString());
+            assertEquals(expected.find(key).size(), actual.find(key).size());
+        }
+    }
+
+    @Test
+    void testFind() {
+        Node<Integer, String> plain = new Node<>();
+        Node<Integer, String> indexed = new IndexedNode<>();
+        fill(plain, new Random(0), 500);
+        fill(indexed, new Random(0), 500);
+        assertSameFind(plain, indexed);
+
+        plain.getChild(1).remove(3);
+        indexed.getChild(1).remove(3);
+        plain.getChild(2).getFirstChild().clearBranch();
+        indexed.getChild(2).getFirstChild().clearBranch();
+        plain.getChild(3).getFirstChild().getFirstChild().removeBranch();
+        indexed.getChild(3).getFirstChild().getFirstChild().removeBranch();
+        plain.getChild(0).replace(new Node<>(5)).add(new Node<>(7));
+        indexed.getChild(0).replace(new Node<>(5)).add(new Node<>(7));
+        assertSameFind(plain, indexed);
+
+        Node<Integer, String> other = new Node<>();
+        fill(other, new Random(1), 100);
+        plain.merge(other.cloneTree());
+        indexed.merge(other.cloneTree());
+        assertSameFind(plain, indexed);
+    }
+
+    @Test
+    void testFindFromChild() {
+        Node<Integer, String> plain = new Node<>();
+        Node<Integer, String> indexed = new IndexedNode<>();
+        fill(plain, new Random(0), 200);
+        fill(indexed, new Random(0), 200);
+        assertSameFind(plain.getChild(1), indexed.getChild(1));
+    }
+
+    @Test
+    void testReattach() {
+        Node<Integer, String> indexed = new IndexedNode<>(100);
+        fill(indexed, new Random(0), 100);
+        Node<Integer, String> root = new Node<>();
+        root.add(indexed);
+        indexed.add(new Node<>(50));
+        assertEquals(1, indexed.find(50).getChildCount());
+        root.remove(indexed);
+        indexed.add(new Node<>(60));
+        assertEquals(1, indexed.find(50).getChildCount());
+        assertEquals(1, indexed.find(60).getChildCount());
+        indexed.destroy();
+        assertEquals(0, indexed.find(50).size());
+    }
+
+    @Test
+    void testFindPredicate() {
+        Node<String, String> root = new IndexedNode<>();
+        root.add(new Node<>("A", "x")).add(new Node<>("C", "y"));
+        root.add(new Node<>("B", "x")).add(new Node<>("C", "x"));
+        Node<String, String> found = root.find("C", n -> "x".equals(n.getValue()));
+        assertEquals(2, found.size());
+        assertNotNull(found.getChild("B").getChild("C"));
+        assertNull(found.getChild("A"));
+        assertFalse(found instanceof IndexedNode);
+    }
+
+    @Test
+    void testComputeIfAbsentPath() {
+        Node<String, String> root = new IndexedNode<>();
+        root.computeIfAbsentPath(Arrays.asList("A", "B", "C"));
+        root.computeIfAbsentPath(Arrays.asList("A", "D", "C"));
+        Node<String, String> found = root.find("C");
+        assertEquals(5, found.size());
+        assertNotNull(found.getPath("A", "B", "C"));
+        assertNotNull(found.getPath("A", "D", "C"));
+    }
+}
@@ -0,0 +1,146 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntNodeTest {
+
+    @Test
+    void testSameAsNode() {
+        Random random = new Random(0);
+        Node<Integer, String> expected = new Node<>();
+        IntNode<String> root = new IntNode<>();
+        for (int i = 0; i < 5000; i++) {
+            int k1 = random.nextInt(20);
+            int k2 = random.nextInt(50);
+            int k3 = random.nextInt(100);
+            expected.add(new Node<Integer, String>(k1)).add(new Node<>(k2)).add(new Node<>(k3, "v" + i));
+            root.add(new IntNode<String>(k1)).add(new IntNode<>(k2)).add(new IntNode<>(k3, "v" + i));
+        }
+        assertEquals(expected.size(), root.size());
+        assertEquals(expected.getChildren().toString(), root.getChildren().toString());
+        assertEquals(expected.getLeaves().size(), root.getLeaves().size());
+
+        List<Integer> topDown = new ArrayList<>();
+        root.traverseByDepthTopDown(node -> topDown.add(node.getKey()));
+        List<Integer> expectedTopDown = new ArrayList<>();
+        expected.traverseByDepthTopDown(node -> expectedTopDown.add(node.getKey()));
+        assertEquals(expectedTopDown.subList(1, expectedTopDown.size()), topDown.subList(1, topDown.size()));
+
+        List<Integer> bottomUp = new ArrayList<>();
+        root.traverseByDepthBottomUp(node -> bottomUp.add(node.getKey()));
+        List<Integer> expectedBottomUp = new ArrayList<>();
+        expected.traverseByDepthBottomUp(node -> expectedBottomUp.add(node.getKey()));
+        assertEquals(expectedBottomUp.subList(0, expectedBottomUp.size() - 1), bottomUp.subList(0, bottomUp.size() - 1));
+
+        assertEquals(expected.find(7).getChildren().toString(), root.find(7).getChildren().toString());
+        assertEquals(expected.find(7).size(), root.find(7).size());
+        assertEquals(expected.subTree(new Node<>(5), new Node<>(9)).getChildren().toString(),
+                root.subTree(new IntNode<>(5), new IntNode<>(9)).getChildren().toString());
+        assertEquals(expected.subTree(3, 4).size(), root.subTree(3, 4).size());
+
+        List<Integer> breadthTopDown = new ArrayList<>();
+        root.traverseByBreadthTopDown(node -> breadthTopDown.add(node.getKey()));
+        List<Integer> expectedBreadthTopDown = new ArrayList<>();
+        expected.traverseByBreadthTopDown(node -> expectedBreadthTopDown.add(node.getKey()));
+        assertEquals(expectedBreadthTopDown.subList(1, expectedBreadthTopDown.size()), breadthTopDown.subList(1, breadthTopDown.size()));
+
+        List<Integer> breadthBottomUp = new ArrayList<>();
+        root.traverseByBreadthBottomUp(node -> breadthBottomUp.add(node.getKey()));
+        List<Integer> expectedBreadthBottomUp = new ArrayList<>();
+        expected.traverseByBreadthBottomUp(node -> expectedBreadthBottomUp.add(node.getKey()));
+        assertEquals(expectedBreadthBottomUp.subList(0, expectedBreadthBottomUp.size() - 1), breadthBottomUp.subList(0, breadthBottomUp.size() - 1));
+
+        Node<Integer, String> expectedFiltered = expected.filteredTree(node -> node.getKey() % 7 == 0);
+        IntNode<String> filtered = root.filteredTree(node -> node.getKey() % 7 == 0);
+        assertEquals(expectedFiltered.getChildren().toString(), filtered.getChildren().toString());
+        assertEquals(expectedFiltered.size(), filtered.size());
+
+        IntNode<String> branch = root.getChild(3).getChild(10).getBranch();
+        assertEquals(expected.getChild(3).getChild(10).getBranch().toString(), branch.toString());
+        assertEquals(root.getChild(3).getChild(10).size() + 1, branch.size());
+        assertEquals(root.getChild(3).getChild(10).toString(), root.getChild(3).getChild(10).getBranch(root.getChild(3)).toString());
+
+        IntNode<String> clone = root.cloneTree();
+        assertEquals(root.toString(), clone.toString());
+        assertEquals(root.size(), clone.size());
+        clone.getChild(3).remove(10);
+        expected.getChild(3).remove(10);
+        root.getChild(3).remove(10);
+        assertEquals(expected.size(), root.size());
+        assertEquals(root.size(), clone.size());
+    }
+
+    @Test
+    void testMerge() {
+        IntNode<String> root = new IntNode<>();
+        root.add(new IntNode<>(1)).add(new IntNode<>(2, "a"));
+        IntNode<String> other = new IntNode<>();
+        other.add(new IntNode<>(1)).add(new IntNode<>(3, "b"));
+        other.add(new IntNode<>(4));
+        root.merge(other);
+        assertEquals("0 -> [1 -> [2, 3], 4]", root.toString());
+        assertEquals(4, root.size());
+        assertSame(root, root.getChild(1).getChild(3).getRoot());
+        root.remove(1);
+        assertEquals(1, root.size());
+        assertTrue(root.containsKey(4));
+        assertFalse(root.containsKey(1));
+    }
+
+    @Test
+    void testLongNode() {
+        LongNode<String> root = new LongNode<>();
+        long big = 1L << 40;
+        root.add(new LongNode<>(big)).add(new LongNode<>(big + 1, "a"));
+        root.add(new LongNode<>(-big));
+        assertEquals("0 -> [" + -big + ", " + big + " -> [" + (big + 1) + "]]", root.toString());
+        assertEquals("a", root.getChild(big).getChild(big + 1).getValue());
+        assertEquals(1, root.find(big + 1).getChildCount());
+        assertEquals(root.find(big + 1).toString(), root.filteredTree(n -> n.getKey() == big + 1).toString());
+        assertEquals(String.valueOf(big) + " -> [" + (big + 1) + "]", root.getChild(big).getChild(big + 1).getBranch().toString());
+        assertEquals(3, root.size());
+    }
+
+    private static class TaggedNode extends IntNode<String> {
+
+        TaggedNode(int key, String value) {
+            super(key, value);
+        }
+
+        @Override
+        protected IntNode<String> createNode(int key, String value) {
+            return new TaggedNode(key, value);
+        }
+    }
+
+    @Test
+    void testPath() {
+        IntNode<String> root = new TaggedNode(0, null);
+        IntNode<String> leaf = root.computeIfAbsentPath(new int[]{1, 2, 3}, key -> "v" + key);
+        assertEquals("v3", leaf.getValue());
+        assertEquals("v1", root.getChild(1).getValue());
+        assertEquals(3, root.size());
+        assertSame(leaf, root.getPath(1, 2, 3));
+        assertSame(leaf, root.computeIfAbsentPath(1, 2, 3));
+        assertNull(root.getPath(1, 3));
+        root.computeIfAbsentPath(1, 4);
+        root.computeIfAbsentPath(0);
+        assertEquals("0 -> [0, 1 -> [2 -> [3], 4]]", root.toString());
+        assertEquals(5, root.size());
+        assertSame(root, leaf.getRoot());
+        assertTrue(leaf instanceof TaggedNode);
+        assertTrue(root.cloneTree().getPath(1, 4) instanceof TaggedNode);
+
+        LongNode<String> longRoot = new LongNode<>();
+        long big = 1L << 40;
+        LongNode<String> longLeaf = longRoot.computeIfAbsentPath(big, -big);
+        assertSame(longLeaf, longRoot.getPath(big, -big));
+        assertEquals(2, longRoot.size());
+    }
+}
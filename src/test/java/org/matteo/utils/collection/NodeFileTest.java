@@ -0,0 +1,71 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeFileTest {
+
+    @TempDir
+    Path folder;
+
+    private static Node<String, Integer> tree() {
+        Random random = new Random(0);
+        Node<String, Integer> root = new Node<>();
+        for (int i = 0; i < 3000; i++) {
+            Node<String, Integer> branch = new Node<>("K" + random.nextInt(20), i);
+            branch.add(new Node<>("Key" + random.nextInt(50))).add(new Node<>("Long key " + random.nextInt(100), i));
+            root.add(branch);
+        }
+        return root;
+    }
+
+    @Test
+    void testWriteAndMap() throws IOException {
+        Node<String, Integer> root = tree();
+        Path path = folder.resolve("tree.bin");
+        NodeFile.write(root, path, Codec.STRING, Codec.INTEGER);
+
+        MappedNode<String, Integer> mapped = NodeFile.map(path, Codec.STRING, Codec.INTEGER);
+        assertTrue(mapped.isRoot());
+        assertNull(mapped.getKey());
+        assertEquals(root.size(), mapped.size());
+        assertEquals(root.getChildCount(), mapped.getChildCount());
+        assertEquals(root.toString(), mapped.toString());
+        assertEquals(root.toString(), mapped.toNode().toString());
+
+        Node<String, Integer> leaf = root.getLeaves().get(100);
+        Node<String, Integer> parent = leaf.getParent();
+        MappedNode<String, Integer> found = mapped.getPath(Arrays.asList(parent.getParent().getKey(), parent.getKey(), leaf.getKey()));
+        assertEquals(leaf.getKey(), found.getKey());
+        assertEquals(leaf.getValue(), found.getValue());
+        assertEquals(parent.getKey(), found.getParent().getKey());
+        assertTrue(found.isLeaf());
+        assertNull(mapped.getChild("missing"));
+    }
+
+    @Test
+    void testSegments() throws IOException {
+        Node<String, Integer> root = tree();
+        Path path = folder.resolve("tree.bin");
+        NodeFile.write(root, path, Codec.STRING, Codec.INTEGER);
+        MappedNode<String, Integer> mapped = NodeFile.map(path, Codec.STRING, Codec.INTEGER, NullSafeComparator.getInstance(), 61);
+        assertEquals(root.toString(), mapped.toNode().toString());
+        Node<String, Integer> child = root.getChildrenList().get(7);
+        assertEquals(child.getValue(), mapped.getChild(child.getKey()).getValue());
+    }
+
+    @Test
+    void testInvalidFile() throws IOException {
+        Path path = folder.resolve("invalid.bin");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertThrows(IOException.class, () -> NodeFile.map(path, Codec.STRING, Codec.INTEGER));
+    }
+}
@@ -3,9 +3,19 @@ package org.matteo.utils.collection;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -354,7 +364,9 @@ class NodeTest {
         assertFalse(data.sameChild2.isLeaf());
         assertTrue(data.child.contains(data.leaf));
         assertEquals(1, data.sameChild2.getChildCount());
-        assertSame(data.sameChild2, data.child.getChild(data.child2));
+        assertSame(data.root2, data.sameChild2.getParent());
+        assertNotSame(data.sameChild2, data.child.getChild(data.child2));
+        assertEquals(data.sameChild2.toString(), data.child.getChild(data.child2).toString());
     }
 
     @Test
@@ -369,7 +381,72 @@ class NodeTest {
         assertFalse(data.sameChild2.isLeaf());
         assertFalse(data.child.contains(data.leaf));
         assertEquals(1, data.sameChild2.getChildCount());
-        assertSame(data.sameChild2, data.child.getChild(data.child2));
+        assertSame(data.root2, data.sameChild2.getParent());
+        assertNotSame(data.sameChild2, data.child.getChild(data.child2));
+        assertEquals(data.sameChild2.toString(), data.child.getChild(data.child2).toString());
+    }
+
+    @Test
+    void testMutateGraftedTree() {
+        for (int seed = 0; seed < 20; seed++) {
+            for (boolean intersect : new boolean[]{false, true}) {
+                Random random = new Random(seed);
+                Node<Integer, String> root = randomTree(random, 300);
+                Node<Integer, String> childRoot = randomTree(random, 30);
+                if (intersect) {
+                    root.intersectChildTree(childRoot);
+                } else {
+                    root.joinChildTree(childRoot);
+                }
+                childRoot.getFirstChild().add(new Node<>(99));
+                for (Node<Integer, String> leaf : root.getLeaves()) {
+                    leaf.add(new Node<>(98));
+                }
+                root.traverseByDepthTopDown(node -> assertEquals(count(node), node.size()));
+                childRoot.traverseByDepthTopDown(node -> assertEquals(count(node), node.size()));
+            }
+        }
+    }
+
+    @Test
+    void testJoinAndIntersectRandom() {
+        for (int seed = 0; seed < 20; seed++) {
+            for (boolean intersect : new boolean[]{false, true}) {
+                Random random = new Random(seed);
+                Node<Integer, String> expected = randomTree(random, 300);
+                Node<Integer, String> childRoot = randomTree(random, 30);
+                random = new Random(seed);
+                Node<Integer, String> actual = randomTree(random, 300);
+                for (Node<Integer, String> leaf : expected.getLeaves()) {
+                    Node<Integer, String> child = childRoot.getChild(leaf);
+                    if (child != null) {
+                        leaf.getParent().replace(child.cloneTree());
+                    } else if (intersect) {
+                        leaf.removeBranch();
+                    }
+                }
+                if (intersect) {
+                    actual.intersectChildTree(childRoot);
+                } else {
+                    actual.joinChildTree(childRoot);
+                }
+                assertEquals(expected.toString(), actual.toString());
+                assertEquals(expected.size(), actual.size());
+                assertEquals(count(actual), actual.size());
+            }
+        }
+    }
+
+    private static Node<Integer, String> randomTree(Random random, int rows) {
+        Node<Integer, String> root = new Node<>();
+        for (int i = 0; i < rows; i++) {
+            Node<Integer, String> node = root.add(new Node<>(random.nextInt(5)));
+            int depth = random.nextInt(4);
+            for (int d = 0; d < depth; d++) {
+                node = node.add(new Node<>(random.nextInt(40)));
+            }
+        }
+        return root;
     }
 
     @Test
@@ -456,6 +533,67 @@ class NodeTest {
         assertEquals(2, found.getLeaves().size());
     }
 
+    @Test
+    void testViews() {
+        Random random = new Random(0);
+        Node<Integer, String> root = new Node<>();
+        for (int i = 0; i < 3000; i++) {
+            root.computeIfAbsentPath(Arrays.asList(random.nextInt(50), random.nextInt(20), random.nextInt(20)));
+        }
+        assertEquals(root.subTree(10, 5).toString(), root.subTreeView(10, 5).toNode().toString());
+        assertEquals(root.subTree(-1, 100).toString(), root.subTreeView(-1, 100).toString());
+        assertEquals(5, root.subTreeView(10, 5).getChildCount());
+        assertEquals(0, root.subTreeView(60, 5).getChildCount());
+        assertTrue(root.subTreeView(60, 5).isLeaf());
+        assertEquals(root.subTree(new Node<>(45)).toString(), root.subTreeView(new Node<>(45)).toString());
+        assertEquals(root.subTree(new Node<>(7), new Node<>(12)).toString(), root.subTreeView(new Node<>(7), new Node<>(12)).toString());
+
+        Predicate<Node<Integer, String>> predicate = node -> node.getKey() != null && node.getKey() == 13 && node.isLeaf();
+        Node<Integer, String> filtered = root.filteredTree(predicate);
+        NodeView<Integer, String> view = root.filteredView(predicate);
+        assertEquals(filtered.toString(), view.toString());
+        assertEquals(filtered.size(), view.toNode().size());
+        assertEquals(filtered.getChildCount(), view.getChildCount());
+
+        root.getChild(0).removeBranch();
+        assertEquals(root.subTree(0, 3).toString(), root.subTreeView(0, 3).toString());
+
+        Node<Integer, String> flat = new Node<>();
+        for (int i = 10; i < 20; i++) {
+            flat.add(new Node<>(i));
+        }
+        NodeView<Integer, String> range = flat.subTreeView(new Node<>(12), new Node<>(14));
+        assertEquals("null -> [12, 13, 14]", range.toString());
+        flat.add(new Node<>(1));
+        flat.add(new Node<>(2));
+        assertEquals("null -> [12, 13, 14]", range.toString());
+        assertEquals(3, range.getChildCount());
+        flat.remove(13);
+        assertEquals(2, range.getChildCount());
+
+        Node<Integer, String> chain = new Node<>();
+        Node<Integer, String> last = chain;
+        for (int i = 0; i < 5000; i++) {
+            last = last.add(new Node<>(i));
+        }
+        last.add(new Node<>(-1));
+        NodeView<Integer, String> deep = chain.filteredView(node -> node.getKey() != null && node.getKey() == -1);
+        assertEquals(5001, deep.toNode().size());
+
+        AtomicInteger tests = new AtomicInteger();
+        NodeView<Integer, String> marked = flat.filteredView(node -> {
+            tests.incrementAndGet();
+            return node.getKey() != null && node.getKey() == 14;
+        });
+        assertEquals("null -> [14]", marked.toString());
+        tests.set(0);
+        assertEquals(1, marked.getChildCount());
+        assertEquals(flat.getChildCount(), tests.get());
+        flat.remove(14);
+        marked.refresh();
+        assertTrue(marked.isLeaf());
+    }
+
     @Test
     void testBranch() {
         Data data = new Data();
@@ -497,7 +635,7 @@ class NodeTest {
     void testTraverse() {
         Data data = new Data();
         data.root.replace(data.child).replace(data.leaf);
-        data.root.replace(data.child2).replace(data.leaf).replaceSibling(data.leaf2);
+        data.root.replace(data.child2).replace(data.leaf.cloneNode()).replaceSibling(data.leaf2);
 
         final List<String> result = new ArrayList<>();
 
@@ -619,6 +757,390 @@ class NodeTest {
         assertTrue(node1.isLeaf());
     }
 
+    @Test
+    void testLargeFanOut() {
+        Node<Integer, String> root = new Node<>();
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(i);
+        }
+        Collections.shuffle(keys, new Random(0));
+        for (Integer key : keys) {
+            root.add(new Node<>(key));
+        }
+        assertEquals(100, root.getChildCount());
+        assertEquals(100, root.size());
+        List<Integer> sorted = root.getChildrenKeyList();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), sorted.get(i));
+            assertEquals(i, root.getChild(i).getPosition());
+        }
+        assertEquals(Integer.valueOf(0), root.getFirstChild().getKey());
+        assertEquals(10, root.subTree(90, 20).getChildCount());
+        assertEquals(11, root.subTree(new Node<>(10), new Node<>(20)).getChildCount());
+        assertEquals(50, root.subTree(new Node<>(50)).getChildCount());
+        for (int i = 0; i < 95; i++) {
+            root.remove(i);
+        }
+        assertEquals(5, root.getChildCount());
+        assertEquals(Integer.valueOf(95), root.getFirstChild().getKey());
+        assertEquals(4, root.getChild(99).getPosition());
+        for (int i = 95; i < 100; i++) {
+            root.remove(i);
+        }
+        assertTrue(root.isLeaf());
+        assertNull(root.getFirstChild());
+    }
+
+    @Test
+    void testSizeCounters() {
+        Random random = new Random(0);
+        Node<Integer, String> root = new Node<>();
+        for (int i = 0; i < 2000; i++) {
+            Node<Integer, String> branch = new Node<>(random.nextInt(5));
+            branch.add(new Node<>(random.nextInt(50))).add(new Node<>(random.nextInt(100)));
+            root.add(branch);
+        }
+        assertEquals(count(root), root.size());
+        Node<Integer, String> first = root.getFirstChild();
+        Node<Integer, String> replaced = first.getFirstChild();
+        first.replace(new Node<>(replaced.getKey()));
+        assertEquals(count(root), root.size());
+        Node<Integer, String> other = new Node<>();
+        other.add(new Node<>(1)).add(new Node<>(1000)).add(new Node<>(1));
+        other.add(new Node<>(7)).add(new Node<>(1));
+        root.merge(other);
+        assertEquals(count(root), root.size());
+        root.getChild(1).getChild(1000).getFirstChild().removeBranch();
+        assertEquals(count(root), root.size());
+        for (int i = 0; i < 100; i += 3) {
+            root.getChild(2).remove(i);
+        }
+        assertEquals(count(root), root.size());
+        assertEquals(count(root.subTree(1, 2)), root.subTree(1, 2).size());
+        root.getChild(3).clearBranch();
+        assertEquals(count(root), root.size());
+        assertEquals(root.getChild(3).getChildCount(), root.getChild(3).size());
+        root.getChild(4).clear();
+        assertEquals(count(root), root.size() - root.getChild(4).size());
+        root.destroy();
+        assertEquals(0, root.size());
+    }
+
+    @Test
+    void testChildrenIteratorRemove() {
+        for (int fanOut : new int[]{10, 100}) {
+            Node<Integer, String> root = new Node<>();
+            for (int i = 0; i < fanOut; i++) {
+                root.add(new Node<>(i)).add(new Node<>(-1));
+            }
+            Iterator<Node<Integer, String>> iterator = root.getChildren().iterator();
+            assertThrows(IllegalStateException.class, iterator::remove);
+            List<Integer> visited = new ArrayList<>();
+            while (iterator.hasNext()) {
+                Node<Integer, String> child = iterator.next();
+                visited.add(child.getKey());
+                if (child.getKey() % 2 == 0) {
+                    iterator.remove();
+                    assertNull(child.getParent());
+                }
+            }
+            assertEquals(fanOut, visited.size());
+            assertEquals(fanOut / 2, root.getChildCount());
+            assertEquals(count(root), root.size());
+            root.getChildren().removeIf(child -> child.getKey() < fanOut / 2);
+            assertEquals((fanOut / 2 + 1) / 2, root.getChildCount());
+            assertEquals(fanOut / 2 | 1, (int) root.getFirstChild().getKey());
+            assertEquals(count(root), root.size());
+        }
+    }
+
+    @Test
+    void testMoveBetweenTrees() {
+        Node<Integer, String> source = new Node<>();
+        source.add(new Node<>(1)).add(new Node<>(2)).add(new Node<>(3));
+        source.add(new Node<>(4)).add(new Node<>(5)).add(new Node<>(6));
+        Node<Integer, String> target = new Node<>();
+        target.add(new Node<>(2)).add(new Node<>(7));
+        Node<Integer, String> moved = target.add(source.getChild(1));
+        assertNull(source.getChild(1));
+        assertEquals(3, source.size());
+        assertSame(target, moved.getParent());
+        assertEquals(5, target.size());
+
+        Node<Integer, String> other = new Node<>();
+        other.add(new Node<>(2)).add(new Node<>(9));
+        target.merge(other);
+        assertEquals(1, other.size());
+        assertTrue(other.getChild(2).isLeaf());
+        assertEquals(6, target.size());
+        assertEquals(count(target), target.size());
+
+        Node<Integer, String> replaced = source.getPath(4, 5);
+        target.getChild(2).replace(replaced);
+        assertNull(source.getPath(4, 5));
+        assertEquals(1, source.size());
+        assertSame(target.getChild(2), replaced.getParent());
+        assertEquals(count(target), target.size());
+
+        Node<Integer, String> leaf = target.getPath(1, 2);
+        Node<Integer, String> branch = leaf.getBranch();
+        leaf.add(new Node<>(8));
+        assertEquals(1, branch.getChild(2).getChildCount());
+        assertEquals(count(branch), branch.size());
+        assertEquals(count(target), target.size());
+    }
+
+    private static int count(Node<?, ?> node) {
+        int count = node.getChildCount();
+        for (Node<?, ?> child : node.getChildren()) {
+            count += count(child);
+        }
+        return count;
+    }
+
+    @Test
+    void testLargeFanOutRandom() {
+        Random random = new Random(0);
+        Node<Integer, String> root = new Node<>();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                root.remove(key);
+                reference.remove(key);
+            } else {
+                root.add(new Node<>(key));
+                reference.add(key);
+            }
+        }
+        assertEquals(new ArrayList<>(reference), root.getChildrenKeyList());
+        assertEquals(reference.size(), root.size());
+        int position = 0;
+        for (Integer key : reference) {
+            assertEquals(position++, root.getChild(key).getPosition());
+        }
+        List<Integer> page = root.subTree(100, 10).getChildrenKeyList();
+        assertEquals(new ArrayList<>(reference).subList(100, 110), page);
+    }
+
+    @Test
+    void testParallelTraverse() {
+        Random random = new Random(0);
+        Node<Integer, Integer> root = new Node<>(0, 1);
+        for (int i = 0; i < 5000; i++) {
+            Node<Integer, Integer> branch = new Node<>(random.nextInt(10), 1);
+            branch.add(new Node<>(random.nextInt(50), 1)).add(new Node<>(random.nextInt(100), 1));
+            root.add(branch);
+        }
+
+        List<Node<Integer, Integer>> topDown = Collections.synchronizedList(new ArrayList<>());
+        root.parallelTraverseByDepthTopDown(node -> {
+            assertTrue(node.isRoot() || topDown.contains(node.getParent()));
+            topDown.add(node);
+        }, 16);
+        assertEquals(root.size() + 1, topDown.size());
+
+        Set<Node<Integer, Integer>> bottomUp = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        root.parallelTraverseByDepthBottomUp(node -> {
+            assertTrue(bottomUp.containsAll(node.getChildren()));
+            bottomUp.add(node);
+        }, 16);
+        assertEquals(root.size() + 1, bottomUp.size());
+
+        assertEquals(root.size() + 1, (int) root.reduce(Node::getValue, Integer::sum));
+        assertEquals(root.size() + 1, (int) root.parallelReduce(Node::getValue, Integer::sum, 16));
+        BiFunction<Node<Integer, Integer>, List<String>, String> path = (node, results) -> node.getKey() + String.join("", results);
+        assertEquals(root.aggregate(path), root.parallelAggregate(path, 16));
+    }
+
+    @Test
+    void testDeepTree() {
+        Node<Integer, String> root = new Node<>();
+        Node<Integer, String> node = root;
+        for (int i = 0; i < 20000; i++) {
+            node = node.add(new Node<>(i));
+        }
+        List<Node<Integer, String>> topDown = new ArrayList<>();
+        root.traverseByDepthTopDown(topDown::add);
+        assertEquals(20001, topDown.size());
+        assertSame(node, topDown.get(20000));
+        List<Node<Integer, String>> bottomUp = new ArrayList<>();
+        root.traverseByBreadthBottomUp(bottomUp::add);
+        assertSame(node, bottomUp.get(0));
+        assertEquals(Collections.singletonList(node), root.getLeaves());
+        assertEquals(20000, root.cloneTree().size());
+        assertEquals(20000, (int) root.<Integer>aggregate((n, depths) -> depths.isEmpty() ? 0 : depths.get(0) + 1));
+        root.destroy();
+        assertEquals(0, root.size());
+        assertNull(node.getParent());
+    }
+
+    static Node<Integer, String> chain(int depth) {
+        Node<Integer, String> node = new Node<>(depth - 1);
+        for (int i = depth - 2; i >= 0; i--) {
+            Node<Integer, String> parent = new Node<>(i);
+            parent.putSorted(Collections.singletonList(node));
+            node = parent;
+        }
+        Node<Integer, String> root = new Node<>();
+        root.putSorted(Collections.singletonList(node));
+        return root;
+    }
+
+    @Test
+    void testDeepChain() {
+        int depth = 100000;
+        Node<Integer, String> root = chain(depth);
+        assertEquals(depth, root.size());
+        BiFunction<Node<Integer, String>, List<Integer>, Integer> height = (n, heights) -> heights.isEmpty() ? 0 : heights.get(0) + 1;
+        assertEquals(depth, (int) root.aggregate(height));
+        assertEquals(depth, (int) root.parallelAggregate(height));
+        assertEquals(depth, (int) root.parallelAggregate(height, 16));
+        assertEquals(depth + 1, (int) root.parallelReduce(n -> 1, Integer::sum));
+
+        List<Integer> sequential = new ArrayList<>();
+        root.traverseByDepthTopDown(n -> sequential.add(n.getKey()));
+        List<Integer> parallel = Collections.synchronizedList(new ArrayList<>());
+        root.parallelTraverseByDepthTopDown(n -> parallel.add(n.getKey()));
+        assertEquals(sequential, parallel);
+        parallel.clear();
+        root.parallelTraverseByDepthBottomUp(n -> parallel.add(n.getKey()), 16);
+        Collections.reverse(sequential);
+        assertEquals(sequential, parallel);
+
+        Node<Integer, String> comb = new Node<>();
+        Node<Integer, String> spine = comb;
+        for (int i = 0; i < 5000; i++) {
+            spine.add(new Node<>(-i));
+            spine = spine.add(new Node<>(i));
+        }
+        AtomicInteger count = new AtomicInteger();
+        comb.parallelTraverseByDepthBottomUp(n -> count.incrementAndGet(), 4);
+        assertEquals(comb.size() + 1, count.get());
+        assertEquals(comb.size() + 1, (int) comb.parallelReduce(n -> 1, Integer::sum, 4));
+    }
+
+    @Test
+    void testStream() {
+        Random random = new Random(0);
+        Node<Integer, String> root = new Node<>();
+        for (int i = 0; i < 5000; i++) {
+            Node<Integer, String> branch = new Node<>(random.nextInt(50));
+            branch.add(new Node<>(random.nextInt(50))).add(new Node<>(random.nextInt(50)));
+            root.add(branch);
+        }
+        List<Node<Integer, String>> topDown = new ArrayList<>();
+        root.traverseByDepthTopDown(topDown::add);
+        assertEquals(topDown, root.stream().collect(Collectors.toList()));
+        assertEquals(topDown, root.stream().parallel().collect(Collectors.toList()));
+        assertEquals(root.size() + 1, root.stream().parallel().count());
+        assertEquals(root.getLeaves(), root.leafStream().parallel().collect(Collectors.toList()));
+        assertEquals(root.getFirstChild(), root.stream().skip(1).findFirst().orElse(null));
+    }
+
+    @Test
+    void testDiff() {
+        Node<String, Integer> yesterday = new Node<>();
+        yesterday.add(new Node<>("A", 1)).add(new Node<>("B", 2)).add(new Node<>("C", 3));
+        yesterday.add(new Node<>("D", 4)).add(new Node<>("E", 5));
+        yesterday.add(new Node<>("F", 6));
+        Node<String, Integer> today = yesterday.cloneTree();
+        assertTrue(yesterday.diff(today).isEmpty());
+
+        today.getChild("A").getChild("B").setValue(20);
+        today.getChild("A").getChild("B").remove("C");
+        today.getChild("D").add(new Node<>("G", 7)).add(new Node<>("H", 8));
+        today.remove("F");
+        today.add(new Node<>("0", 0));
+
+        NodeDiff<String, Integer> diff = yesterday.diff(today);
+        assertEquals(Arrays.asList("0", "G"), keys(diff.getAdded()));
+        assertEquals(Arrays.asList("C", "F"), keys(diff.getRemoved()));
+        assertEquals(1, diff.getChanged().size());
+        assertEquals(2, (int) diff.getChanged().get(0).getBefore().getValue());
+        assertEquals(20, (int) diff.getChanged().get(0).getAfter().getValue());
+
+        int[] changed = {0};
+        yesterday.diff(today, (v1, v2) -> true, new NodeDiffVisitor<String, Integer>() {
+            @Override
+            public void added(Node<String, Integer> node) {
+            }
+
+            @Override
+            public void removed(Node<String, Integer> node) {
+            }
+
+            @Override
+            public void changed(Node<String, Integer> node, Node<String, Integer> other) {
+                changed[0]++;
+            }
+        });
+        assertEquals(0, changed[0]);
+    }
+
+    private static List<String> keys(List<Node<String, Integer>> nodes) {
+        List<String> keys = new ArrayList<>();
+        for (Node<String, Integer> node : nodes) {
+            keys.add(node.getKey());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    @Test
+    void testPath() {
+        Node<Integer, String> root = new Node<>();
+        Node<Integer, String> leaf = root.computeIfAbsentPath(Arrays.asList(1, 2, 3), key -> "v" + key);
+        assertEquals("v3", leaf.getValue());
+        assertEquals("v1", root.getChild(1).getValue());
+        assertEquals(3, root.size());
+        assertSame(leaf, root.getPath(1, 2, 3));
+        assertSame(leaf, root.computeIfAbsentPath(Arrays.asList(1, 2, 3)));
+        assertNull(root.getPath(1, 3));
+        root.computeIfAbsentPath(Arrays.asList(1, 4));
+        assertEquals(4, root.size());
+        assertSame(root, leaf.getRoot());
+
+        Random random = new Random(0);
+        List<List<Integer>> paths = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            List<Integer> path = Arrays.asList(random.nextInt(10), random.nextInt(10), random.nextInt(10));
+            paths.add(path);
+            root.computeIfAbsentPath(path);
+        }
+        for (int i = 0; i < 50; i++) {
+            List<Integer> from = paths.get(random.nextInt(paths.size()));
+            List<Integer> to = Arrays.asList(random.nextInt(10), random.nextInt(10), random.nextInt(10));
+            List<List<Integer>> expected = new ArrayList<>();
+            root.traverseByDepthTopDown(node -> {
+                if (node.getDepth() == 3) {
+                    List<Integer> path = Arrays.asList(node.getParent().getParent().getKey(), node.getParent().getKey(), node.getKey());
+                    if (compare(from, path) <= 0 && compare(path, to) <= 0) {
+                        expected.add(path);
+                    }
+                }
+            });
+            List<List<Integer>> actual = new ArrayList<>();
+            for (Node<Integer, String> node : root.range(from, to)) {
+                actual.add(Arrays.asList(node.getParent().getParent().getKey(), node.getParent().getKey(), node.getKey()));
+            }
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), root.range(from, to).size());
+        }
+        assertThrows(IllegalArgumentException.class, () -> root.range(Arrays.asList(1, 2), Collections.singletonList(3)));
+    }
+
+    private static int compare(List<Integer> p1, List<Integer> p2) {
+        for (int i = 0; i < p1.size(); i++) {
+            int cmp = p1.get(i).compareTo(p2.get(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
     @Test
     void testComparator() {
         NodeComparator root = new NodeComparator(null);
@@ -0,0 +1,87 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentNodeTest {
+
+    @Test
+    void testVersions() {
+        PersistentNode<String, Integer> v0 = new PersistentNode<>();
+        PersistentNode<String, Integer> v1 = v0.put(Arrays.asList("A", "B", "C"), 1);
+        PersistentNode<String, Integer> v2 = v1.put(Arrays.asList("D", "E"), 2);
+        PersistentNode<String, Integer> v3 = v2.put(Arrays.asList("A", "B", "C"), 3);
+        PersistentNode<String, Integer> v4 = v3.remove(Arrays.asList("A", "B"));
+
+        assertEquals(0, v0.size());
+        assertEquals(3, v1.size());
+        assertEquals(5, v2.size());
+        assertEquals(5, v3.size());
+        assertEquals(3, v4.size());
+        assertEquals("null -> [A -> [B -> [C]]]", v1.toString());
+        assertEquals("null -> [A -> [B -> [C]], D -> [E]]", v3.toString());
+        assertEquals("null -> [A, D -> [E]]", v4.toString());
+
+        assertEquals(1, (int) v1.getPath(Arrays.asList("A", "B", "C")).getValue());
+        assertEquals(1, (int) v2.getPath(Arrays.asList("A", "B", "C")).getValue());
+        assertEquals(3, (int) v3.getPath(Arrays.asList("A", "B", "C")).getValue());
+        assertNull(v4.getPath(Arrays.asList("A", "B", "C")));
+        assertNull(v4.getPath(Arrays.asList("X", "Y")));
+        assertSame(v4, v4.getPath(Collections.emptyList()));
+
+        assertSame(v1.getChild("A"), v2.getChild("A"));
+        assertSame(v2.getChild("D"), v3.getChild("D"));
+        assertSame(v3.getChild("D"), v4.getChild("D"));
+        assertNotSame(v2.getChild("A"), v3.getChild("A"));
+        assertSame(v4, v4.remove(Arrays.asList("X", "Y")));
+    }
+
+    @Test
+    void testUpdate() {
+        PersistentNode<String, Integer> root = new PersistentNode<String, Integer>().put(Arrays.asList("A", "B"), 1);
+        PersistentNode<String, Integer> updated = root.update(Arrays.asList("A", "B"), n -> n.put(new PersistentNode<>("C", 2)));
+        assertEquals("null -> [A -> [B -> [C]]]", updated.toString());
+        assertSame(root, root.update(Arrays.asList("A", "B"), n -> n));
+        assertThrows(IllegalArgumentException.class, () -> root.update(Arrays.asList("A", "B"), n -> new PersistentNode<>("X")));
+        assertThrows(IllegalArgumentException.class, () -> root.update(Collections.emptyList(), n -> n));
+    }
+
+    @Test
+    void testConversion() {
+        Random random = new Random(0);
+        Node<Integer, String> node = new Node<>();
+        for (int i = 0; i < 2000; i++) {
+            Node<Integer, String> branch = new Node<>(random.nextInt(50), "v" + i);
+            branch.add(new Node<>(random.nextInt(50))).add(new Node<>(random.nextInt(50)));
+            node.add(branch);
+        }
+        PersistentNode<Integer, String> persistent = PersistentNode.of(node);
+        assertEquals(node.size(), persistent.size());
+        assertEquals(node.toString(), persistent.toString());
+        Node<Integer, String> copy = persistent.toNode();
+        assertEquals(node.toString(), copy.toString());
+        assertEquals(node.size(), copy.size());
+        assertEquals(node.getFirstChild().getValue(), copy.getFirstChild().getValue());
+    }
+
+    @Test
+    void testDeepChain() {
+        int depth = 100000;
+        PersistentNode<Integer, String> persistent = PersistentNode.of(NodeTest.chain(depth));
+        assertEquals(depth, persistent.size());
+        Node<Integer, String> copy = persistent.toNode();
+        assertEquals(depth, copy.size());
+        Node<Integer, String> node = copy;
+        for (int i = 0; i < depth; i++) {
+            node = node.getFirstChild();
+            assertEquals(i, (int) node.getKey());
+            assertEquals(depth - i - 1, node.size());
+        }
+        assertTrue(node.isLeaf());
+    }
+}
@@ -2,8 +2,19 @@ package org.matteo.utils.collection;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,9 +48,191 @@ class PriorityHashSetTest {
         }
     }
 
+    @Test
+    void testOrdered() {
+        PriorityHashSet<Mock> set = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), true);
+        assertTrue(set.isOrdered());
+        Random random = new Random(0);
+        Map<String, Integer> best = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            Mock mock = new Mock("ID" + random.nextInt(500), random.nextInt(1000));
+            set.add(mock);
+            best.merge(mock.getId(), mock.getPriority(), Math::min);
+        }
+        List<Integer> expected = new ArrayList<>(best.values());
+        Collections.sort(expected);
+        List<Integer> priorities = new ArrayList<>();
+        for (Mock mock : set) {
+            priorities.add(mock.getPriority());
+        }
+        assertEquals(expected, priorities);
+        assertEquals(expected.get(0).intValue(), set.first().getPriority());
+        List<Mock> top = set.topK(10);
+        assertEquals(10, top.size());
+        assertEquals(expected.subList(0, 10), top.stream().map(Mock::getPriority).collect(Collectors.toList()));
+
+        Mock first = set.pollFirst();
+        assertEquals(expected.get(0).intValue(), first.getPriority());
+        assertFalse(set.contains(first));
+        assertEquals(expected.size() - 1, set.size());
+        assertTrue(set.add(new Mock(first.getId(), -1)));
+        assertEquals(-1, set.first().getPriority());
+        assertTrue(set.remove(new Mock(first.getId(), 0)));
+        assertEquals(expected.get(1).intValue(), set.first().getPriority());
+
+        assertTrue(set.removeAll(Collections.singleton(set.first())));
+        assertEquals(expected.get(2).intValue(), set.first().getPriority());
+        assertEquals(expected.size() - 2, set.size());
+        assertEquals(expected.size() - 2, set.toArray().length);
+        set.clear();
+        assertNull(set.pollFirst());
+        assertThrows(IllegalStateException.class, () -> new PriorityHashSet<Mock>().first());
+    }
+
+    @Test
+    void testCompact() {
+        PriorityHashSet<Mock> set = PriorityHashSet.compact();
+        PriorityHashSet<Mock> expected = new PriorityHashSet<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 50000; i++) {
+            Mock mock = new Mock("ID" + random.nextInt(5000), random.nextInt(1000));
+            assertEquals(expected.add(mock), set.add(mock));
+            if (i % 7 == 0) {
+                Mock removed = new Mock("ID" + random.nextInt(5000), 0);
+                assertEquals(expected.remove(removed), set.remove(removed));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        Set<Mock> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(elements, expected.toArray(new Mock[0]));
+        for (Mock mock : set) {
+            assertTrue(elements.remove(mock));
+        }
+        assertTrue(elements.isEmpty());
+
+        List<Mock> retained = new ArrayList<>();
+        Iterator<Mock> iterator = set.iterator();
+        for (int i = 0; i < 100; i++) {
+            retained.add(iterator.next());
+        }
+        assertTrue(set.retainAll(retained));
+        assertEquals(100, set.size());
+        assertTrue(set.containsAll(retained));
+        assertTrue(set.removeAll(retained.subList(0, 50)));
+        assertEquals(50, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(retained.get(0)));
+    }
+
+    @Test
+    void testBounded() {
+        List<Mock> evicted = new ArrayList<>();
+        PriorityHashSet<Mock> lowest = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), 3, PriorityHashSet.Eviction.LOWEST_PRIORITY, evicted::add);
+        assertTrue(lowest.isBounded());
+        assertTrue(lowest.add(new Mock("A", 5)));
+        assertTrue(lowest.add(new Mock("B", 1)));
+        assertTrue(lowest.add(new Mock("C", 3)));
+        assertTrue(lowest.add(new Mock("D", 2)));
+        assertEquals(3, lowest.size());
+        assertEquals("A", evicted.get(0).getId());
+        assertFalse(lowest.add(new Mock("E", 9)));
+        assertEquals("E", evicted.get(1).getId());
+        assertTrue(lowest.add(new Mock("C", 0)));
+        assertEquals(2, evicted.size());
+        assertEquals("C", lowest.first().getId());
+
+        evicted.clear();
+        PriorityHashSet<Mock> lru = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), 2, PriorityHashSet.Eviction.LRU, evicted::add);
+        lru.add(new Mock("A", 1));
+        lru.add(new Mock("B", 1));
+        assertFalse(lru.add(new Mock("A", 2)));
+        assertTrue(lru.add(new Mock("C", 1)));
+        assertEquals(Collections.singletonList("B"), evicted.stream().map(Mock::getId).collect(Collectors.toList()));
+        assertTrue(lru.contains(new Mock("A", 0)));
+
+        evicted.clear();
+        long[] now = {0};
+        PriorityHashSet<Mock> ttl = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), 2, 10, evicted::add, () -> now[0]);
+        ttl.add(new Mock("A", 1));
+        now[0] = 5;
+        ttl.add(new Mock("B", 1));
+        ttl.add(new Mock("A", 0));
+        ttl.add(new Mock("C", 1));
+        assertEquals(Collections.singletonList("B"), evicted.stream().map(Mock::getId).collect(Collectors.toList()));
+        now[0] = 15;
+        ttl.evictExpired();
+        assertEquals(Arrays.asList("B", "A", "C"), evicted.stream().map(Mock::getId).collect(Collectors.toList()));
+        assertTrue(ttl.isEmpty());
+
+        evicted.clear();
+        Mock best = new Mock("A", 1);
+        PriorityHashSet<Mock> replaced = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), 1, PriorityHashSet.Eviction.LRU, evicted::add);
+        replaced.add(new Mock("A", 5));
+        replaced.add(best);
+        replaced.add(new Mock("B", 3));
+        assertEquals(Collections.singletonList(best), evicted);
+        assertSame(best, evicted.get(0));
+
+        evicted.clear();
+        now[0] = 0;
+        PriorityHashSet<Mock> readded = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), 10, 100, evicted::add, () -> now[0]);
+        Mock mock = new Mock("A", 1);
+        readded.add(mock);
+        now[0] = 90;
+        readded.remove(mock);
+        readded.add(mock);
+        now[0] = 110;
+        readded.evictExpired();
+        assertTrue(evicted.isEmpty());
+        now[0] = 190;
+        readded.evictExpired();
+        assertEquals(Collections.singletonList(mock), evicted);
+
+        assertThrows(IllegalArgumentException.class, () -> new PriorityHashSet<Mock>(Comparator.naturalOrder(), 2, PriorityHashSet.Eviction.TTL, null));
+        assertThrows(IllegalArgumentException.class, () -> new PriorityHashSet<Mock>(Comparator.naturalOrder(), 0, PriorityHashSet.Eviction.LRU, null));
+    }
+
+    @Test
+    void testBulk() {
+        Random random = new Random(0);
+        List<Mock> mocks = new ArrayList<>();
+        Map<String, Integer> best = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            Mock mock = new Mock("ID" + random.nextInt(20000), random.nextInt(1000));
+            mocks.add(mock);
+            best.merge(mock.getId(), mock.getPriority(), Math::min);
+        }
+        PriorityHashSet<Mock> parallel = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority), true);
+        assertTrue(parallel.parallelAddAll(mocks));
+        PriorityHashSet<Mock> collected = mocks.parallelStream().collect(PriorityHashSet.toPriorityHashSet(Comparator.comparing(Mock::getPriority)));
+        PriorityHashSet<Mock> merged = PriorityHashSet.compact(Comparator.comparing(Mock::getPriority));
+        merged.addAll(mocks.subList(0, 50000));
+        PriorityHashSet<Mock> other = new PriorityHashSet<>(Comparator.comparing(Mock::getPriority));
+        other.addAll(mocks.subList(50000, mocks.size()));
+        assertTrue(merged.merge(other));
+        for (PriorityHashSet<Mock> set : Arrays.asList(parallel, collected, merged)) {
+            assertEquals(best.size(), set.size());
+            for (Mock mock : set) {
+                assertEquals(best.get(mock.getId()).intValue(), mock.getPriority());
+            }
+        }
+        assertEquals(parallel.first().getPriority(), (int) Collections.min(best.values()));
+
+        List<Mock> some = new ArrayList<>(parallel.topK(100));
+        assertTrue(parallel.removeAll(some));
+        assertEquals(best.size() - 100, parallel.size());
+        assertFalse(parallel.containsAll(some));
+        assertTrue(collected.retainAll(some));
+        assertEquals(100, collected.size());
+        assertTrue(collected.containsAll(some));
+        assertTrue(collected.removeAll(new HashSet<>(mocks)));
+        assertTrue(collected.isEmpty());
+    }
+
     private static final Comparator<Mock> COMPARATOR = Comparator.comparing(Mock::getId).thenComparing(Mock::getPriority);
 
-    private static class Mock implements Comparable<Mock> {
+    static class Mock implements Comparable<Mock> {
         private final String id;
         private final int priority;
 
@@ -0,0 +1,84 @@
+package org.matteo.utils.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedNodeLoaderTest {
+
+    private static List<List<Integer>> paths(int rows) {
+        Random random = new Random(0);
+        List<List<Integer>> paths = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            paths.add(Arrays.asList(random.nextInt(10), random.nextInt(100), random.nextInt(1000)));
+        }
+        paths.sort((p1, p2) -> {
+            for (int i = 0; i < p1.size(); i++) {
+                int cmp = p1.get(i).compareTo(p2.get(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        });
+        return paths;
+    }
+
+    @Test
+    void testLoad() {
+        List<List<Integer>> paths = paths(20000);
+        Node<Integer, String> expected = new Node<>();
+        for (List<Integer> path : paths) {
+            expected.add(new Node<>(path.get(0))).add(new Node<>(path.get(1))).add(new Node<>(path.get(2)));
+        }
+        Node<Integer, String> loaded = SortedNodeLoader.load(paths);
+        assertEquals(expected.toString(), loaded.toString());
+        assertEquals(expected.size(), loaded.size());
+        Node<Integer, String> child = loaded.getChild(5);
+        assertSame(loaded, child.getParent());
+        assertEquals(expected.getChild(5).size(), child.size());
+        assertEquals(expected.getChild(5).getChild(50).getPosition(), child.getChild(50).getPosition());
+    }
+
+    @Test
+    void testValuesAndIndex() {
+        SortedNodeLoader<String, Integer> loader = new SortedNodeLoader<>(new IndexedNode<String, Integer>());
+        loader.add(Arrays.asList("A", "B"), 1);
+        loader.add(Arrays.asList("A", "B", "C"), 2);
+        loader.add(Arrays.asList("A", "D"), 3);
+        loader.add(Arrays.asList("B", "C"), 4);
+        Node<String, Integer> root = loader.load();
+        assertEquals("null -> [A -> [B -> [C], D], B -> [C]]", root.toString());
+        assertEquals(1, (int) root.getChild("A").getChild("B").getValue());
+        assertEquals(4, (int) root.getChild("B").getChild("C").getValue());
+        assertEquals(2, root.find("C").getLeaves().size());
+        assertSame(root, loader.load());
+        assertThrows(IllegalStateException.class, () -> loader.add(Collections.singletonList("C")));
+    }
+
+    @Test
+    void testIdentityRoot() {
+        SortedNodeLoader<String, Integer> loader = new SortedNodeLoader<>(new IdentityNode<String, Integer>());
+        loader.add(Arrays.asList("A", "B"));
+        loader.add(Arrays.asList("A", "C"));
+        loader.add(Collections.singletonList("B"));
+        Node<String, Integer> root = loader.load();
+        assertEquals("null -> [A -> [B, C], B]", root.toString());
+        root.traverseByDepthTopDown(node -> assertTrue(node instanceof IdentityNode));
+    }
+
+    @Test
+    void testOutOfOrder() {
+        SortedNodeLoader<String, Integer> loader = new SortedNodeLoader<>();
+        loader.add(Arrays.asList("A", "C"));
+        assertThrows(IllegalArgumentException.class, () -> loader.add(Arrays.asList("A", "B")));
+        assertThrows(IllegalArgumentException.class, () -> loader.add(Collections.singletonList("A")));
+        assertThrows(IllegalArgumentException.class, () -> new SortedNodeLoader<>(loader.load()));
+    }
+}
@@ -0,0 +1,105 @@
+package org.matteo.utils.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NamedThreadFactoryTest {
+
+    @Test
+    void testOptions() {
+        ThreadGroup group = new ThreadGroup("group");
+        Thread.UncaughtExceptionHandler handler = (t, e) -> {
+        };
+        NamedThreadFactory factory = new NamedThreadFactory("test")
+                .daemon(true)
+                .priority(Thread.MAX_PRIORITY)
+                .uncaughtExceptionHandler(handler)
+                .group(group);
+        Thread thread = factory.newThread(() -> {
+        });
+        assertEquals("test-1", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertEquals(Thread.MAX_PRIORITY, thread.getPriority());
+        assertSame(handler, thread.getUncaughtExceptionHandler());
+        assertSame(group, thread.getThreadGroup());
+        assertEquals("test-2", factory.newThread(() -> {
+        }).getName());
+    }
+
+    @Test
+    void testInvalidOptions() {
+        NamedThreadFactory factory = new NamedThreadFactory("test");
+        assertThrows(IllegalArgumentException.class, () -> factory.priority(Thread.MAX_PRIORITY + 1));
+        assertThrows(IllegalArgumentException.class, factory::pin);
+    }
+
+    @Test
+    void testPin() throws Exception {
+        List<Integer> pinned = Collections.synchronizedList(new ArrayList<>());
+        NamedThreadFactory factory = new NamedThreadFactory("test").pin(pinned::add, 2, 3);
+        for (int i = 0; i < 3; i++) {
+            Thread thread = factory.newThread(() -> {
+            });
+            thread.start();
+            thread.join();
+        }
+        assertEquals(3, pinned.size());
+        assertEquals(Integer.valueOf(2), pinned.get(0));
+        assertEquals(Integer.valueOf(3), pinned.get(1));
+        assertEquals(Integer.valueOf(2), pinned.get(2));
+    }
+
+    @Test
+    void testPinnedThread() throws Exception {
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> cpus = Collections.synchronizedList(new ArrayList<>());
+        ThreadAffinity recording = cpu -> {
+            threads.add(Thread.currentThread());
+            cpus.add(cpu);
+        };
+        Thread thread = new NamedThreadFactory("test").pin(recording, 5).newThread(() -> {
+        });
+        thread.start();
+        thread.join();
+        assertEquals(Collections.singletonList(thread), threads);
+        assertEquals(Collections.singletonList(5), cpus);
+    }
+
+    @Test
+    void testDefaultAffinity() {
+        assertEquals(LinuxThreadAffinity.isSupported(), ThreadAffinity.getDefault() instanceof LinuxThreadAffinity);
+    }
+
+    @Test
+    void testAffinityFailure() throws Exception {
+        assumeTrue(LinuxThreadAffinity.isSupported());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean ran = new AtomicBoolean();
+        Thread failing = new NamedThreadFactory("test")
+                .uncaughtExceptionHandler((t, e) -> errors.add(e))
+                .pin(new LinuxThreadAffinity("false"), 0)
+                .newThread(() -> ran.set(true));
+        failing.start();
+        failing.join();
+        assertTrue(ran.get());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalStateException);
+
+        errors.clear();
+        Thread succeeding = new NamedThreadFactory("test")
+                .uncaughtExceptionHandler((t, e) -> errors.add(e))
+                .pin(new LinuxThreadAffinity("true"), 0)
+                .newThread(() -> {
+                });
+        succeeding.start();
+        succeeding.join();
+        assertTrue(errors.isEmpty());
+    }
+}
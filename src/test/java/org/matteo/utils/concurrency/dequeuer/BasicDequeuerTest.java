@@ -4,7 +4,13 @@ import org.junit.jupiter.api.Test;
 import org.matteo.utils.concurrency.exception.ExceptionHandler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -62,6 +68,138 @@ class BasicDequeuerTest {
         assertTrue(dequeuer.isTerminated());
     }
 
+    @Test
+    void testQueueIdleStrategies() throws Exception {
+        for (IdleStrategy idleStrategy : Arrays.asList(IdleStrategy.BUSY_SPIN, new BackoffIdleStrategy(), new BackoffIdleStrategy(0, 0, 1, 1))) {
+            int threads = 2;
+            StringProcessor processor = new StringProcessor();
+            final BasicDequeuer<String> dequeuer = new BasicDequeuer<>(processor, true, threads);
+            dequeuer.setIdleStrategy(idleStrategy);
+            final int num = 1 << 8;
+            for (int i = 0; i < num; i++) {
+                dequeuer.enqueue(String.valueOf(i));
+            }
+            assertTrue(dequeuer.awaitTermination(1, TimeUnit.HOURS));
+            assertEquals(num, processor.ctr.get());
+            assertTrue(dequeuer.isTerminated());
+        }
+    }
+
+    @Test
+    void testInvalidIdleStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> new BackoffIdleStrategy(0, 0, 10, 1));
+    }
+
+    @Test
+    void testSubmit() throws Exception {
+        StringProcessor processor = new StringProcessor();
+        final Dequeuer<String> dequeuer = new BasicDequeuer<>(processor, false, 2);
+        List<Future<String>> futures = new ArrayList<>();
+        final int num = 1 << 6;
+        for (int i = 0; i < num; i++) {
+            futures.add(dequeuer.submit(String.valueOf(i)));
+        }
+        for (int i = 0; i < num; i++) {
+            assertEquals(String.valueOf(i), futures.get(i).get(1, TimeUnit.MINUTES));
+        }
+        assertTrue(dequeuer.awaitTermination(1, TimeUnit.HOURS));
+        TerminationReport<String> report = dequeuer.getTerminationReport();
+        assertEquals(num, report.getProcessed());
+        assertTrue(report.getInFlight().isEmpty());
+        assertTrue(report.getUnprocessed().isEmpty());
+    }
+
+    @Test
+    void testTerminationReport() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        final List<String> seen = new CopyOnWriteArrayList<>();
+        Processor<String> processor = s -> {
+            seen.add(s);
+            started.countDown();
+            release.await();
+            finished.countDown();
+        };
+        final Dequeuer<String> dequeuer = new BasicDequeuer<>(processor, false, 1);
+        Future<String> first = dequeuer.submit("A");
+        Future<String> second = dequeuer.submit("B");
+        started.await();
+        assertFalse(dequeuer.awaitTermination(100, TimeUnit.MILLISECONDS));
+        TerminationReport<String> report = dequeuer.getTerminationReport();
+        release.countDown();
+        assertEquals(0, report.getProcessed());
+        assertEquals(0, report.getFailed());
+        assertEquals(Collections.singletonList("A"), new ArrayList<>(report.getInFlight()));
+        assertEquals(Collections.singletonList("B"), new ArrayList<>(report.getUnprocessed()));
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+        finished.await();
+        assertEquals(Arrays.asList("A", "B"), seen);
+        assertSame(report, dequeuer.getTerminationReport());
+    }
+
+    @Test
+    void testShutdownNow() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final List<String> seen = new CopyOnWriteArrayList<>();
+        Processor<String> processor = s -> {
+            seen.add(s);
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } finally {
+                finished.countDown();
+            }
+        };
+        final Dequeuer<String> dequeuer = new BasicDequeuer<>(processor, false, 1);
+        Future<String> first = dequeuer.submit("A");
+        dequeuer.submit("B");
+        started.await();
+        dequeuer.shutdownNow();
+        finished.await();
+        TerminationReport<String> report = dequeuer.getTerminationReport();
+        assertEquals(Collections.singletonList("A"), new ArrayList<>(report.getInFlight()));
+        assertEquals(Collections.singletonList("B"), new ArrayList<>(report.getUnprocessed()));
+        assertTrue(first.isCancelled());
+        assertEquals(Collections.singletonList("A"), seen);
+        assertEquals(Collections.singletonList("B"), new ArrayList<>(dequeuer.getUnprocessed()));
+    }
+
+    @Test
+    void testFailedCompleteAction() throws Exception {
+        final BasicDequeuer<String> dequeuer = new BasicDequeuer<>(new StringProcessor(), false, 1);
+        dequeuer.setCompleteAction(s -> {
+            throw SIMULATED_EXCEPTION;
+        });
+        Future<String> future = dequeuer.submit("A");
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertSame(SIMULATED_EXCEPTION, e.getCause());
+        assertEquals(0, dequeuer.getTerminationReport().getProcessed());
+        assertEquals(1, dequeuer.getTerminationReport().getFailed());
+        try {
+            dequeuer.awaitTermination(1, TimeUnit.HOURS);
+        } catch (Exception ignore) {
+        }
+    }
+
+    @Test
+    void testSubmitBadProcessor() throws Exception {
+        Processor<String> processor = s -> {
+            throw SIMULATED_EXCEPTION;
+        };
+        final Dequeuer<String> dequeuer = new BasicDequeuer<>(processor, false, 1);
+        Future<String> future = dequeuer.submit("A");
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertSame(SIMULATED_EXCEPTION, e.getCause());
+        try {
+            dequeuer.awaitTermination(1, TimeUnit.HOURS);
+        } catch (Exception ignore) {
+        }
+        assertEquals(1, dequeuer.getTerminationReport().getFailed());
+    }
+
     @Test
     void testQueueMultiProcessor() throws Exception {
         int threads = 10;
@@ -6,6 +6,8 @@ import org.matteo.utils.concurrency.exception.ExceptionHandler;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -98,12 +100,11 @@ class ChainedDequeuerTest {
         exceptionHandler.register(() -> sentinel = true);
 
         final int num = 15;
-        try {
+        assertThrows(RejectedObjectException.class, () -> {
             for (int i = 0; i < num; i++) {
                 chainedDequeuer.enqueue(String.valueOf(i));
             }
-        } catch (RejectedObjectException ignore) {
-        }
+        });
         try {
             chainedDequeuer.awaitTermination(1, TimeUnit.HOURS);
         } catch (Exception e) {
@@ -118,6 +119,63 @@ class ChainedDequeuerTest {
         assertTrue(sentinel);
     }
 
+    @Test
+    void testSubmit() throws Exception {
+        FakeProcessor processor1 = new FakeProcessor();
+        FakeProcessor processor2 = new FakeProcessor();
+        final Dequeuer<String> chainedDequeuer = new ChainedDequeuer<>(Arrays.asList(
+                new BasicDequeuer<>(processor1, 2), new BasicDequeuer<>(processor2, 2)));
+        final int num = 10;
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            futures.add(chainedDequeuer.submit(String.valueOf(i)));
+        }
+        for (Future<String> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        assertEquals(num, processor2.ctr.get());
+        chainedDequeuer.awaitTermination(1, TimeUnit.HOURS);
+        TerminationReport<String> report = chainedDequeuer.getTerminationReport();
+        assertEquals(num, report.getProcessed());
+        assertTrue(report.getInFlight().isEmpty());
+        assertTrue(report.getUnprocessed().isEmpty());
+    }
+
+    @Test
+    void testIndependentChains() throws Exception {
+        ExceptionHandler root = new ExceptionHandler();
+
+        FakeProcessor processor = new FakeProcessor();
+        final ChainedDequeuer<String> healthy = new ChainedDequeuer<>(Collections.singletonList(
+                new BasicDequeuer<>(processor, 1)), root.createChild());
+
+        ConditionalBadProcessor processorFail = new ConditionalBadProcessor(true);
+        final ChainedDequeuer<String> failing = new ChainedDequeuer<>(Collections.singletonList(
+                new BasicDequeuer<>(processorFail, 1)), root.createChild());
+
+        assertThrows(RejectedObjectException.class, () -> {
+            for (int i = 0; i < 15; i++) {
+                failing.enqueue(String.valueOf(i));
+            }
+        });
+        try {
+            failing.awaitTermination(1, TimeUnit.HOURS);
+        } catch (Exception e) {
+            assertSame(SIMULATED_EXCEPTION, e);
+        }
+        assertTrue(failing.isTerminated());
+        assertSame(SIMULATED_EXCEPTION, failing.getExceptionHandler().getException());
+
+        final int num = 10;
+        for (int i = 0; i < num; i++) {
+            healthy.enqueue(String.valueOf(i));
+        }
+        healthy.awaitTermination(1, TimeUnit.HOURS);
+        assertEquals(num, processor.ctr.get());
+        assertNull(healthy.getExceptionHandler().getException());
+        assertNull(root.getException());
+    }
+
     private class FakeProcessor implements Processor<String> {
         AtomicInteger ctr = new AtomicInteger();
 
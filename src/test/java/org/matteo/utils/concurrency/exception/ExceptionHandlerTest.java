@@ -0,0 +1,128 @@
+package org.matteo.utils.concurrency.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExceptionHandlerTest {
+
+    private static final RuntimeException FIRST = new RuntimeException("First");
+    private static final RuntimeException SECOND = new RuntimeException("Second");
+
+    @Test
+    void testFirstExceptionWins() throws Exception {
+        ExceptionHandler exceptionHandler = new ExceptionHandler();
+        AtomicInteger ctr = new AtomicInteger();
+        exceptionHandler.register(e -> ctr.incrementAndGet());
+        exceptionHandler.handle(FIRST);
+        exceptionHandler.handle(SECOND);
+        exceptionHandler.waitForShutdown();
+        assertSame(FIRST, exceptionHandler.getException());
+        assertEquals(1, ctr.get());
+    }
+
+    @Test
+    void testShutdownOrder() throws Exception {
+        ExceptionHandler exceptionHandler = new ExceptionHandler();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        exceptionHandler.register("A", () -> order.add("A"));
+        exceptionHandler.register("B", () -> order.add("B"));
+        exceptionHandler.register("C", () -> order.add("C"));
+        exceptionHandler.register("A", () -> order.add("A1"));
+        exceptionHandler.remove("B");
+        exceptionHandler.handle(FIRST);
+        exceptionHandler.waitForShutdown();
+        assertEquals(Arrays.asList("A1", "C"), order);
+    }
+
+    @Test
+    void testConcurrentRegistration() throws Exception {
+        ExceptionHandler exceptionHandler = new ExceptionHandler();
+        AtomicInteger ctr = new AtomicInteger();
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        final int num = 1 << 12;
+        for (int i = 0; i < num; i++) {
+            final Object key = i;
+            service.submit(() -> {
+                exceptionHandler.register(key, ctr::incrementAndGet);
+                if ((Integer) key % 2 == 0) {
+                    exceptionHandler.remove(key);
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(1, TimeUnit.MINUTES));
+        exceptionHandler.handle(FIRST);
+        exceptionHandler.waitForShutdown();
+        assertEquals(num / 2, ctr.get());
+    }
+
+    @Test
+    void testNoException() throws Exception {
+        ExceptionHandler exceptionHandler = new ExceptionHandler();
+        exceptionHandler.waitForShutdown();
+        assertNull(exceptionHandler.getException());
+    }
+
+    @Test
+    void testChildScope() throws Exception {
+        ExceptionHandler root = new ExceptionHandler();
+        ExceptionHandler child1 = root.createChild();
+        ExceptionHandler child2 = root.createChild();
+        AtomicInteger rootCtr = new AtomicInteger();
+        AtomicInteger child1Ctr = new AtomicInteger();
+        AtomicInteger child2Ctr = new AtomicInteger();
+        root.register(rootCtr::incrementAndGet);
+        child1.register(child1Ctr::incrementAndGet);
+        child2.register(child2Ctr::incrementAndGet);
+        child1.handle(FIRST);
+        child1.waitForShutdown();
+        assertSame(FIRST, child1.getException());
+        assertNull(root.getException());
+        assertNull(child2.getException());
+        assertEquals(0, rootCtr.get());
+        assertEquals(1, child1Ctr.get());
+        assertEquals(0, child2Ctr.get());
+        root.handle(SECOND);
+        root.waitForShutdown();
+        assertSame(SECOND, child2.getException());
+        assertSame(FIRST, child1.getException());
+        assertEquals(1, rootCtr.get());
+        assertEquals(1, child1Ctr.get());
+        assertEquals(1, child2Ctr.get());
+    }
+
+    @Test
+    void testChildEscalation() throws Exception {
+        ExceptionHandler root = new ExceptionHandler();
+        ExceptionHandler child = root.createChild(true);
+        ExceptionHandler sibling = root.createChild();
+        AtomicInteger siblingCtr = new AtomicInteger();
+        sibling.register(siblingCtr::incrementAndGet);
+        child.handle(FIRST);
+        root.waitForShutdown();
+        assertSame(FIRST, root.getException());
+        assertSame(FIRST, sibling.getException());
+        assertEquals(1, siblingCtr.get());
+    }
+
+    @Test
+    void testDetach() throws Exception {
+        ExceptionHandler root = new ExceptionHandler();
+        ExceptionHandler child = root.createChild();
+        assertSame(root, child.getParent());
+        child.detach();
+        root.handle(FIRST);
+        root.waitForShutdown();
+        assertNull(child.getException());
+    }
+}